@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.theclearproject.clear.init.AbstractInitializer;
+import org.theclearproject.clear.init.Initializer;
+import org.theclearproject.clear.init.LookUpBuilder;
+
+/**
+ * Synthetic resource bundles and lookUps shared by the benchmarks.
+ *
+ * Property i is '(lookUp[i % lookUpCount])key.[i / lookUpCount]' and lives in bundle i % bundleCount, so every
+ * key is defined once per lookUp and the filter has to pick a winner for each of them.
+ *
+ * @author jhumphrey
+ */
+public final class BenchmarkBundles {
+
+  private BenchmarkBundles() {
+  }
+
+  public static List<ResourceBundle> bundles(int propertyCount, int bundleCount, int lookUpCount) {
+    List<Map<String, Object>> contents = new ArrayList<Map<String, Object>>(bundleCount);
+    for (int i = 0; i < bundleCount; i++) {
+      contents.add(new HashMap<String, Object>());
+    }
+
+    for (int i = 0; i < propertyCount; i++) {
+      String lookUpKey = "(lookUp" + (i % lookUpCount) + ")" + key(i / lookUpCount);
+      contents.get(i % bundleCount).put(lookUpKey, String.valueOf(i));
+    }
+
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>(bundleCount);
+    for (Map<String, Object> content : contents) {
+      bundles.add(new MapResourceBundle(content));
+    }
+
+    return bundles;
+  }
+
+  public static List<String> lookUps(int lookUpCount) {
+    List<String> lookUps = new ArrayList<String>(lookUpCount);
+    for (int i = 0; i < lookUpCount; i++) {
+      lookUps.add("lookUp" + i);
+    }
+
+    return lookUps;
+  }
+
+  public static String key(int index) {
+    return "key." + index;
+  }
+
+  public static Initializer initializer(final List<ResourceBundle> bundles, final List<String> lookUps) {
+    return new AbstractInitializer() {
+      @Override
+      public void initClear() {
+        LookUpBuilder builder = withResourceBundle(bundles.toArray(new ResourceBundle[bundles.size()]));
+        builder.withoutLookUps();
+        for (String lookUp : lookUps) {
+          builder.addLookUp(lookUp);
+        }
+      }
+    };
+  }
+
+  private static class MapResourceBundle extends ResourceBundle {
+    private final Map<String, Object> content;
+
+    private MapResourceBundle(Map<String, Object> content) {
+      this.content = content;
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+      return content.get(key);
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+      return Collections.enumeration(content.keySet());
+    }
+  }
+}
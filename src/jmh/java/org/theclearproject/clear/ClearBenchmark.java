@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.validation.Validation;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * Measures the {@link Clear} getters and handles for a mix of hits and misses, on one thread and on all cores,
+ * along with reads through a view holding a few overrides and through a bound interface
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClearBenchmark {
+
+  private static final int QUERIES = 4096;
+
+  @Param({"1000", "100000"})
+  public int keyCount;
+
+  @Param({"1.0", "0.5", "0.0"})
+  public double hitRatio;
+
+  private Clear clear;
+  private Configuration overridden;
+  private IntHandle handle;
+  private Bound bound;
+  private String[] queries;
+
+  @Setup
+  public void setUp() {
+    // the load logs every property at INFO
+    Logger.getLogger("org.theclearproject.clear").setLevel(Level.WARN);
+
+    clear = new Clear(BenchmarkBundles.initializer(BenchmarkBundles.bundles(keyCount, 1, 1), BenchmarkBundles.lookUps(1)),
+      Validation.buildDefaultValidatorFactory().getValidator(), new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+    handle = clear.intHandle(BenchmarkBundles.key(0));
+
+    Map<String, String> overrides = new HashMap<String, String>();
+    for (int i = 0; i < 4; i++) {
+      overrides.put(BenchmarkBundles.key(i), "override");
+    }
+    overridden = clear.withOverrides(overrides);
+    bound = clear.bind(Bound.class);
+
+    Random random = new Random(42);
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      int index = random.nextInt(keyCount);
+      queries[i] = random.nextDouble() < hitRatio ? BenchmarkBundles.key(index) : "missing." + index;
+    }
+  }
+
+  public interface Bound {
+    @ClearValue("key.0")
+    int value();
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    String next(ClearBenchmark benchmark) {
+      next = (next + 1) & (QUERIES - 1);
+      return benchmark.queries[next];
+    }
+  }
+
+  @Benchmark
+  public String getString(Cursor cursor) {
+    return clear.getString(cursor.next(this));
+  }
+
+  @Benchmark
+  public String getStringWithOverrides(Cursor cursor) {
+    return overridden.getString(cursor.next(this));
+  }
+
+  @Benchmark
+  public int getIntWithDefault(Cursor cursor) {
+    return clear.getInt(cursor.next(this), 0);
+  }
+
+  @Benchmark
+  public int intHandle() {
+    return handle.get();
+  }
+
+  @Benchmark
+  public int boundInterface() {
+    return bound.value();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String getStringAllThreads(Cursor cursor) {
+    return clear.getString(cursor.next(this));
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public int intHandleAllThreads() {
+    return handle.get();
+  }
+}
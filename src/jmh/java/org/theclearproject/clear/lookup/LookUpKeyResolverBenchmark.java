@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.lookup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures resolving every key of a load through {@link ParenthesesLookUpKeyResolver}, one at a time and as a
+ * batch, against the split-based {@link SplitLookUpKeyResolver}
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookUpKeyResolverBenchmark {
+
+  @Param({"10000", "1000000"})
+  public int keyCount;
+
+  @Param({"1", "200"})
+  public int lookUpCount;
+
+  private ParenthesesLookUpKeyResolver resolver;
+  private SplitLookUpKeyResolver splitResolver;
+  private String[] lookUpKeys;
+  private List<String> lookUpKeyList;
+
+  @Setup
+  public void setUp() {
+    resolver = new ParenthesesLookUpKeyResolver();
+    splitResolver = new SplitLookUpKeyResolver();
+    lookUpKeys = new String[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      // grouped by lookUp, the way properties files are usually laid out
+      lookUpKeys[i] = "(lookUp" + (i * lookUpCount / keyCount) + ")key." + i;
+    }
+    lookUpKeyList = Arrays.asList(lookUpKeys);
+  }
+
+  @Benchmark
+  public void split(Blackhole blackhole) {
+    for (String lookUpKey : lookUpKeys) {
+      blackhole.consume(splitResolver.resolve(lookUpKey));
+    }
+  }
+
+  @Benchmark
+  public List<LookUpKey> splitAll() {
+    return splitResolver.resolveAll(lookUpKeyList);
+  }
+
+  @Benchmark
+  public void resolve(Blackhole blackhole) {
+    for (String lookUpKey : lookUpKeys) {
+      blackhole.consume(resolver.resolve(lookUpKey));
+    }
+  }
+
+  @Benchmark
+  public List<LookUpKey> resolveAll() {
+    return resolver.resolveAll(lookUpKeyList);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.BenchmarkBundles;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+
+/**
+ * Compares getting to the first read through the load pipeline against opening a compiled binary snapshot
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryPropertyStoreBenchmark {
+
+  @Param({"10000", "100000"})
+  public int keyCount;
+
+  private List<ResourceBundle> bundles;
+  private List<String> lookUps;
+  private File snapshot;
+  private String key;
+
+  @Setup
+  public void setUp() throws IOException {
+    Logger.getLogger("org.theclearproject.clear").setLevel(Level.WARN);
+
+    bundles = BenchmarkBundles.bundles(keyCount, 10, 10);
+    lookUps = BenchmarkBundles.lookUps(10);
+    key = BenchmarkBundles.key(keyCount / 20);
+
+    PropertyServiceImpl service = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver());
+    snapshot = File.createTempFile("clear-benchmark", ".snapshot");
+    BinaryPropertyWriter.write(service.filter(service.load(bundles), lookUps), lookUps,
+      Collections.<BinaryPropertyStore.Source>emptyList(), snapshot);
+  }
+
+  @TearDown
+  public void tearDown() {
+    snapshot.delete();
+  }
+
+  @Benchmark
+  public PropertyValue loadPipeline() {
+    PropertyServiceImpl service = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver());
+    Collection<ClearProperty> filtered = service.filter(service.load(bundles), lookUps);
+    return new PropertyTable(filtered).get(key);
+  }
+
+  @Benchmark
+  public PropertyValue openSnapshot() throws IOException {
+    return BinaryPropertyStore.open(snapshot).get(key);
+  }
+}
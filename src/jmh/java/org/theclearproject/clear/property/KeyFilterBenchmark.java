@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.lookup.LookUpKey;
+
+/**
+ * Measures lookups of keys that aren't defined, with and without the {@link KeyFilter} in front of the table
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyFilterBenchmark {
+
+  private static final int QUERIES = 4096;
+
+  @Param({"1000", "100000", "1000000"})
+  public int keyCount;
+
+  private PropertyTable unfiltered;
+  private PropertyTable filtered;
+
+  private String[] misses;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>(keyCount);
+    for (int i = 0; i < keyCount; i++) {
+      String key = "clear.benchmark.key." + i;
+      properties.add(new ClearProperty(new LookUpKey("default", key, "(default)" + key), String.valueOf(i)));
+    }
+    unfiltered = new PropertyTable(properties, false);
+    filtered = new PropertyTable(properties, true);
+
+    misses = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      misses[i] = "clear.benchmark.missing." + i;
+      // String caches its hash, so compute it up front the way repeated reads of a literal would
+      misses[i].hashCode();
+    }
+  }
+
+  private String nextMiss() {
+    next = (next + 1) & (QUERIES - 1);
+    return misses[next];
+  }
+
+  @Benchmark
+  public PropertyValue missWithoutFilter() {
+    return unfiltered.get(nextMiss());
+  }
+
+  @Benchmark
+  public PropertyValue missWithFilter() {
+    return filtered.get(nextMiss());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.PropertyResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link PropertiesParser} against the PropertyResourceBundle files used to be parsed with
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesParserBenchmark {
+
+  @Param({"1000", "100000"})
+  public int keyCount;
+
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() throws IOException {
+    StringBuilder build = new StringBuilder();
+    for (int i = 0; i < keyCount; i++) {
+      build.append("(lookUp").append(i % 4).append(")clear.benchmark.key.").append(i).append(" = value ")
+        .append(i).append('\n');
+    }
+    bytes = build.toString().getBytes("ISO-8859-1");
+  }
+
+  @Benchmark
+  public Object propertyResourceBundle() throws IOException {
+    return new PropertyResourceBundle(new ByteArrayInputStream(bytes));
+  }
+
+  @Benchmark
+  public void propertiesParser(final Blackhole blackhole) {
+    PropertiesParser.parse(ByteBuffer.wrap(bytes), new PropertyHandler() {
+      @Override
+      public void property(String key, String value) {
+        blackhole.consume(key);
+        blackhole.consume(value);
+      }
+    });
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.lookup.LookUpKey;
+import org.theclearproject.clear.lookup.LookUpKeyResolver;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+
+/**
+ * Measures the heap retained by loaded properties, with the strings pooled the way {@link PropertyServiceImpl}
+ * loads them and without pooling, where every property keeps the strings its bundle handed over.
+ *
+ * Each bundle entry gets its own string instances, the way a parsed file hands them over, and the bundles are
+ * dropped before the heap is measured, so only what the properties hold on to is counted.  The retained heap and
+ * the number of properties loaded are reported as the 'retainedBytes' and 'properties' counters, summed over the
+ * measured loads; their ratio is the retained heap per property.  The load times include the full collections the
+ * measurement needs.  The fork runs the parallel collector, because the heap usage the serial collector reports after
+ * an explicit collection doesn't reliably reflect it.  Run it with -Pjmh.include=PropertyFootprintBenchmark
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class PropertyFootprintBenchmark {
+
+  private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+  @Param({"2000", "20000"})
+  public int keyCount;
+
+  @Param({"5"})
+  public int lookUpCount;
+
+  @Param({"10"})
+  public int valueCount;
+
+  /**
+   * Heap retained by the loaded properties, in bytes, and the number of properties loaded
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long retainedBytes;
+    public long properties;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void reset() {
+      retainedBytes = 0;
+      properties = 0;
+    }
+
+    private void retained(long bytes, int count) {
+      retainedBytes += bytes;
+      properties += count;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    Logger.getLogger("org.theclearproject.clear").setLevel(Level.WARN);
+  }
+
+  @Benchmark
+  public int pooled(Footprint footprint) {
+    long before = usedHeap();
+    List<ResourceBundle> bundles = bundles();
+    Collection<ClearProperty> properties = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()).load(bundles);
+    bundles = null;
+    long after = usedHeap();
+
+    // the properties aren't returned, so the next load doesn't start with the last one still reachable
+    footprint.retained(after - before, properties.size());
+    return properties.size();
+  }
+
+  @Benchmark
+  public int unpooled(Footprint footprint) {
+    long before = usedHeap();
+    List<ResourceBundle> bundles = bundles();
+    LookUpKeyResolver resolver = new ParenthesesLookUpKeyResolver();
+    Set<ClearProperty> properties = new HashSet<ClearProperty>();
+    for (ResourceBundle bundle : bundles) {
+      for (String key : bundle.keySet()) {
+        LookUpKey lookUpKey = resolver.resolve(key);
+        properties.add(new ClearProperty(lookUpKey, bundle.getString(key)));
+      }
+    }
+    bundles = null;
+    long after = usedHeap();
+
+    // the properties aren't returned, so the next load doesn't start with the last one still reachable
+    footprint.retained(after - before, properties.size());
+    return properties.size();
+  }
+
+  private List<ResourceBundle> bundles() {
+    final Object[][] contents = new Object[keyCount * lookUpCount][];
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = new Object[] {
+        new String("(lookUp" + (i % lookUpCount) + ")clear.footprint.key." + (i / lookUpCount)),
+        new String("value" + (i % valueCount))
+      };
+    }
+
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>();
+    bundles.add(new ListResourceBundle() {
+      @Override
+      protected Object[][] getContents() {
+        return contents;
+      }
+    });
+
+    return bundles;
+  }
+
+  /**
+   * Heap in use once a full collection stops freeing anything
+   */
+  private static long usedHeap() {
+    long used = Long.MAX_VALUE;
+    while (true) {
+      System.gc();
+      long current = memory.getHeapMemoryUsage().getUsed();
+      if (current >= used) {
+        return used;
+      }
+      used = current;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.BenchmarkBundles;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+
+/**
+ * Measures the {@link PropertyServiceImpl} load (sequential and parallel), filter and sort steps of the CLEAR startup pipeline
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyServiceBenchmark {
+
+  @Param({"10000", "100000"})
+  public int keyCount;
+
+  @Param({"1", "10", "50"})
+  public int bundleCount;
+
+  @Param({"1", "10", "200"})
+  public int lookUpCount;
+
+  private List<ResourceBundle> bundles;
+  private List<String> lookUps;
+  private Collection<ClearProperty> loaded;
+  private Collection<ClearProperty> filtered;
+  private ForkJoinPool pool;
+
+  @Setup
+  public void setUp() {
+    Logger.getLogger("org.theclearproject.clear").setLevel(Level.WARN);
+
+    bundles = BenchmarkBundles.bundles(keyCount, bundleCount, lookUpCount);
+    lookUps = BenchmarkBundles.lookUps(lookUpCount);
+
+    PropertyServiceImpl service = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver());
+    loaded = service.load(bundles);
+    filtered = service.filter(loaded, lookUps);
+    pool = new ForkJoinPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public Collection<ClearProperty> load() {
+    // a new service each time, so translations cached per bundle aren't reused
+    return new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()).load(bundles);
+  }
+
+  @Benchmark
+  public Collection<ClearProperty> loadParallel() {
+    return new PropertyServiceImpl(new ParenthesesLookUpKeyResolver(), pool).load(bundles);
+  }
+
+  @Benchmark
+  public Collection<ClearProperty> filter() {
+    return new PropertyServiceImpl(null).filter(loaded, lookUps);
+  }
+
+  @Benchmark
+  public SortedSet<ClearProperty> sort() {
+    return new PropertyServiceImpl(null).sort(filtered);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theclearproject.clear.lookup.LookUpKey;
+
+/**
+ * Compares {@link PropertyTable} lookups against the LinkedHashMap Clear used to read through
+ *
+ * @author jhumphrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyTableBenchmark {
+
+  private static final int QUERIES = 4096;
+
+  @Param({"100", "1000", "10000", "100000", "1000000"})
+  public int keyCount;
+
+  private Map<String, ClearProperty> map;
+  private PropertyTable table;
+
+  // copies of the stored keys, so neither structure can short-circuit on identity
+  private String[] queries;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>(keyCount);
+    map = new LinkedHashMap<String, ClearProperty>();
+    for (int i = 0; i < keyCount; i++) {
+      String key = "clear.benchmark.key." + i;
+      ClearProperty property = new ClearProperty(new LookUpKey("default", key, "(default)" + key), String.valueOf(i));
+      properties.add(property);
+      map.put(key, property);
+    }
+    table = new PropertyTable(properties);
+
+    Random random = new Random(42);
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = new String("clear.benchmark.key." + random.nextInt(keyCount));
+    }
+  }
+
+  private String nextQuery() {
+    next = (next + 1) & (QUERIES - 1);
+    return queries[next];
+  }
+
+  @Benchmark
+  public String linkedHashMap() {
+    ClearProperty property = map.get(nextQuery());
+    return property == null ? null : property.getValue();
+  }
+
+  @Benchmark
+  public String propertyTable() {
+    PropertyValue value = table.get(nextQuery());
+    return value == null ? null : value.getValue();
+  }
+}
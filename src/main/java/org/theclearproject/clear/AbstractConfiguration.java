@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyValue;
+
+/**
+ * Implements the typed reads and handles of {@link Configuration} on top of a {@link PropertyStore}.
+ *
+ * Subclasses supply the store their reads currently go to, along with the keys, stats and listeners.
+ *
+ * @author jhumphrey
+ */
+abstract class AbstractConfiguration implements Configuration {
+
+  /**
+   * Returns the store reads currently go to.  Used by {@link PropertyHandle}s to bind to their slot
+   *
+   * @return the property store
+   */
+  abstract PropertyStore table();
+
+  /**
+   * Returns the store views created by {@link #withOverrides(Map)} layer over.  Unlike {@link #table()}, never
+   * affected by a thread-bound scope
+   *
+   * @return the property store
+   */
+  PropertyStore baseTable() {
+    return table();
+  }
+
+  /**
+   * Registers a binding to refresh whenever a new store is published.  Views pass the binding on to the
+   * configuration that publishes the stores they read
+   *
+   * @param binding the binding
+   */
+  void register(InterfaceBinding binding) {
+  }
+
+  @Override
+  public Configuration withOverrides(Map<String, String> overrides) {
+    return new ScopedConfiguration(this, overrides);
+  }
+
+  @Override
+  public <T> T bind(Class<T> type) throws ClearException {
+    return InterfaceBinding.bind(this, type);
+  }
+
+  @Override
+  public KeyAccessor accessor(KeySchema schema) {
+    return new KeyAccessor(this, schema);
+  }
+
+  @Override
+  public Configuration getSubset(String prefix) {
+    return new SubsetConfiguration(this, prefix);
+  }
+
+  /**
+   * Looks up the value of the key and counts the read when stats are enabled
+   *
+   * @param key the property key
+   * @param defaultValue the default value the caller provided, or null
+   * @return the value, or null if the key is undefined
+   */
+  private PropertyValue read(String key, Object defaultValue) {
+    PropertyValue value = table().get(key);
+    ConfigurationStats stats = getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(key, value != null, defaultValue != null);
+    }
+
+    return value;
+  }
+
+  /**
+   * Builds the exception thrown when a value can't be converted, counting the failure when stats are enabled
+   *
+   * @param key the property key
+   * @param value the value
+   * @param type the type name used in the exception message
+   * @return the exception
+   */
+  private ClearException conversionFailure(String key, PropertyValue value, String type) {
+    ConfigurationStats stats = getStats();
+    if (stats.isEnabled()) {
+      stats.recordParseFailure(key);
+    }
+
+    return new ClearException("Value '" + value + "' for key '" + key + "' can't be converted to " + type);
+  }
+
+  @Override
+  public ByteBuffer getBytes(String key) {
+    PropertyStore table = table();
+    int slot = table.indexOf(key);
+    ConfigurationStats stats = getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(key, slot >= 0, false);
+    }
+
+    return slot < 0 ? null : table.bytesAt(slot);
+  }
+
+  @Override
+  public CharSequence getCharSequence(String key) {
+    PropertyStore table = table();
+    int slot = table.indexOf(key);
+    ConfigurationStats stats = getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(key, slot >= 0, false);
+    }
+
+    return slot < 0 ? null : table.charsAt(slot);
+  }
+
+  @Override
+  public String getString(String key, String defaultValue) {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      return defaultValue;
+    } else {
+      return value.getValue();
+    }
+  }
+
+  @Override
+  public String getString(String key) {
+    return getString(key, null);
+  }
+
+  @Override
+  public int getInt(String key, Integer defaultValue) {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No int value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    if (!value.isInt()) {
+      throw conversionFailure(key, value, "an int");
+    }
+
+    return value.getInt();
+  }
+
+  @Override
+  public int getInt(String key) {
+    return getInt(key, null);
+  }
+
+  @Override
+  public long getLong(String key, Long defaultValue) {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No long value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    if (!value.isLong()) {
+      throw conversionFailure(key, value, "a long");
+    }
+
+    return value.getLong();
+  }
+
+  @Override
+  public long getLong(String key) {
+    return getLong(key, null);
+  }
+
+  @Override
+  public boolean getBoolean(String key, Boolean defaultValue) {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No boolean value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    return value.getBoolean();
+  }
+
+  @Override
+  public boolean getBoolean(String key) {
+    return getBoolean(key, null);
+  }
+
+  @Override
+  public double getDouble(String key, Double defaultValue) {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No double value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    if (!value.isDouble()) {
+      throw conversionFailure(key, value, "a double");
+    }
+
+    return value.getDouble();
+  }
+
+  @Override
+  public double getDouble(String key) {
+    return getDouble(key, null);
+  }
+
+  @Override
+  public float getFloat(String key, Float defaultValue) throws ClearException {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No float value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    if (!value.isFloat()) {
+      throw conversionFailure(key, value, "a float");
+    }
+
+    return value.getFloat();
+  }
+
+  @Override
+  public float getFloat(String key) {
+    return getFloat(key, null);
+  }
+
+  @Override
+  public short getShort(String key, Short defaultValue) throws ClearException {
+    PropertyValue value = read(key, defaultValue);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ClearException("No short value exist for key '" + key + "' and no default value was specified.");
+      }
+      return defaultValue;
+    }
+
+    if (!value.isShort()) {
+      throw conversionFailure(key, value, "a short");
+    }
+
+    return value.getShort();
+  }
+
+  @Override
+  public short getShort(String key) {
+    return getShort(key, null);
+  }
+
+  @Override
+  public StringHandle stringHandle(String key) {
+    return new StringHandle(this, key);
+  }
+
+  @Override
+  public IntHandle intHandle(String key) {
+    return new IntHandle(this, key);
+  }
+
+  @Override
+  public LongHandle longHandle(String key) {
+    return new LongHandle(this, key);
+  }
+
+  @Override
+  public BooleanHandle booleanHandle(String key) {
+    return new BooleanHandle(this, key);
+  }
+
+  @Override
+  public DoubleHandle doubleHandle(String key) {
+    return new DoubleHandle(this, key);
+  }
+
+  @Override
+  public FloatHandle floatHandle(String key) {
+    return new FloatHandle(this, key);
+  }
+
+  @Override
+  public ShortHandle shortHandle(String key) {
+    return new ShortHandle(this, key);
+  }
+}
@@ -18,16 +18,28 @@ package org.theclearproject.clear;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.theclearproject.clear.init.Initializer;
+import org.theclearproject.clear.property.BinaryPropertyStore;
+import org.theclearproject.clear.property.BinaryPropertyWriter;
 import org.theclearproject.clear.property.ClearProperty;
 import org.theclearproject.clear.property.PropertyService;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+import org.theclearproject.clear.property.PropertyStore;
 
 import com.google.inject.Inject;
 
@@ -36,45 +48,500 @@ import com.google.inject.Inject;
  *
  * @author jhumphrey
  */
-public class Clear implements Configuration {
+public class Clear extends AbstractConfiguration {
 
   private static final Logger logger = Logger.getLogger(Clear.class);
 
+  /**
+   * Name of the optional {@link StorageMode} binding read by {@link ClearSettings}
+   */
+  public static final String STORAGE_MODE = "clear.storage.mode";
+
+  /**
+   * Name of the optional {@link DumpMode} binding read by {@link ClearSettings}
+   */
+  public static final String DUMP_MODE = "clear.dump.mode";
+
   private Initializer initializer;
   private Validator validator;
   private PropertyService propertyService;
 
-  private Map<String, ClearProperty> properties;
+  // guards reload so only one pipeline runs at a time.  Readers never take this lock
+  private final Object reloadLock = new Object();
+
+  // the current effective properties.  Replaced as a whole on reload
+  private volatile Snapshot snapshot;
+
+  private volatile StorageMode storageMode = StorageMode.HEAP;
+
+  private volatile InitReport initReport;
+
+  private volatile DumpMode dumpMode = DumpMode.SYNC;
+  private final PropertyDumper dumper = new PropertyDumper(logger);
+
+  // the shared Clear this one is layered over, or null
+  private Clear base;
+  // the Clears layered over this one.  Held weakly so layers nobody holds can go
+  private final List<WeakReference<Clear>> layers = new CopyOnWriteArrayList<WeakReference<Clear>>();
+
+  private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<ListenerRegistration>();
+  // the interface bindings to convert for each new snapshot.  Held weakly so proxies nobody holds can go
+  private final List<WeakReference<InterfaceBinding>> bindings =
+    new CopyOnWriteArrayList<WeakReference<InterfaceBinding>>();
+
+  private final ConfigurationStats stats = new ConfigurationStats();
+
+  // the innermost scope open on each thread.  Only looked at while some thread has a scope open
+  private final ThreadLocal<ScopedConfiguration> scope = new ThreadLocal<ScopedConfiguration>();
+  private final AtomicInteger openScopes = new AtomicInteger();
 
-  @Inject
   public Clear(Initializer initializer, Validator validator, PropertyService propertyService) {
+    this(initializer, validator, propertyService, new ClearSettings());
+  }
+
+  /**
+   * Loads the properties with the settings already applied, so an off-heap Clear never holds its properties on the
+   * heap and an asynchronous dump keeps the first load's logging off the constructing thread
+   *
+   * @param initializer the initializer
+   * @param validator the validator
+   * @param propertyService the property service
+   * @param settings the settings of the first load
+   */
+  @Inject
+  public Clear(Initializer initializer, Validator validator, PropertyService propertyService,
+               ClearSettings settings) {
     this.initializer = initializer;
     this.validator = validator;
     this.propertyService = propertyService;
+    this.storageMode = settings.getStorageMode();
+    this.dumpMode = settings.getDumpMode();
     init();
   }
 
+  /**
+   * Starts from a binary snapshot written by {@link #compileSnapshot(File)}, skipping the load and filter steps.
+   *
+   * The initializer still runs, and the snapshot is only used if it was compiled for the same lookUps from the
+   * same bundles with the same contents.  Reads are then served from the memory-mapped snapshot and values are
+   * decoded as they're first read.  If the snapshot is missing, unreadable or corrupt, or anything it was compiled
+   * from changed, the properties are loaded the normal way instead.  Reloads always run the full pipeline.
+   *
+   * @param initializer the initializer, used for fallback loading and reloads
+   * @param validator the validator
+   * @param propertyService the property service
+   * @param snapshotFile the binary snapshot
+   */
+  public Clear(Initializer initializer, Validator validator, PropertyService propertyService, File snapshotFile) {
+    this.initializer = initializer;
+    this.validator = validator;
+    this.propertyService = propertyService;
+
+    InitReport.Recorder recorder = new InitReport.Recorder(false);
+    ClearContext context = initialize(recorder);
+    recorder.start(InitReport.Phase.SNAPSHOT);
+    Snapshot opened = open(snapshotFile, context);
+    if (opened == null) {
+      start(load(context, recorder), recorder);
+    } else {
+      snapshot = opened;
+      recorder.filteredProperties = opened.table.size();
+      recorder.lookUps = opened.lookUps.size();
+
+      recorder.start(InitReport.Phase.PRINT_PROPERTIES);
+      printLookUps(opened.lookUps);
+      if (logger.isInfoEnabled()) {
+        logger.info("CLEAR properties loaded from snapshot '" + snapshotFile + "': " + opened.table.size() +
+          " properties");
+      }
+      report(recorder);
+    }
+  }
+
+  /**
+   * Layers this Clear over a shared base Clear.
+   *
+   * The initializer supplies only the bundles with this Clear's overrides, not the bundles the base was loaded
+   * from.  Only those bundles are loaded and filtered with this Clear's lookUps, and the resulting properties are
+   * read in front of the current properties of the base.  Every other read falls through to the base, so a large
+   * set of properties shared by many instances in one JVM is loaded and held once.  An override wins over the
+   * base whatever lookUp either came from.
+   *
+   * The base isn't copied.  Whenever the base publishes new properties, by a reload or a change of storage mode,
+   * every layered instance still in use is layered over them without loading its overrides again, and its
+   * listeners are told about the values that changed.  No layered instance keeps earlier properties of the base
+   * reachable.  Either side may be kept off the heap; an off-heap layer keeps only its overrides off the heap.
+   *
+   * @param initializer the initializer of the overrides
+   * @param validator the validator
+   * @param propertyService the property service
+   * @param base the shared base
+   */
+  public Clear(Initializer initializer, Validator validator, PropertyService propertyService, Clear base) {
+    this.initializer = initializer;
+    this.validator = validator;
+    this.propertyService = propertyService;
+    this.base = base;
+    // registered before the first load, which holds off any relayering until it has published
+    synchronized (reloadLock) {
+      base.layers.add(new WeakReference<Clear>(this));
+      init();
+    }
+  }
+
   private void init() {
+    InitReport.Recorder recorder = new InitReport.Recorder(false);
+    start(load(recorder), recorder);
+  }
+
+  /**
+   * Publishes and logs the first snapshot
+   *
+   * @param loaded the loaded snapshot
+   * @param recorder records the phases of the run
+   */
+  private void start(Snapshot loaded, InitReport.Recorder recorder) {
+    snapshot = loaded;
+
+    recorder.start(InitReport.Phase.PRINT_PROPERTIES);
+    dump(null, loaded);
+    report(recorder);
+  }
+
+  /**
+   * Publishes and logs the report of a finished pipeline run
+   *
+   * @param recorder the recorder of the run
+   */
+  private void report(InitReport.Recorder recorder) {
+    InitReport report = recorder.finish();
+    initReport = report;
+    if (logger.isInfoEnabled()) {
+      logger.info(report);
+    }
+  }
+
+  /**
+   * Opens a binary snapshot if it's still current
+   *
+   * @param snapshotFile the binary snapshot
+   * @param context the context a load would use now
+   * @return the snapshot, or null if it can't be used
+   */
+  private Snapshot open(File snapshotFile, ClearContext context) {
+    if (!snapshotFile.isFile()) {
+      if (logger.isInfoEnabled()) {
+        logger.info("No CLEAR snapshot at '" + snapshotFile + "'.  Loading properties");
+      }
+      return null;
+    }
+
+    try {
+      BinaryPropertyStore store = BinaryPropertyStore.open(snapshotFile);
+      if (!store.matches(context.lookUps, Snapshot.sources(context.resourceBundles))) {
+        if (logger.isInfoEnabled()) {
+          logger.info("CLEAR snapshot '" + snapshotFile + "' is out of date.  Loading properties");
+        }
+        return null;
+      }
+
+      return new Snapshot(store);
+    } catch (IOException e) {
+      logger.warn("Unable to open CLEAR snapshot '" + snapshotFile + "'.  Loading properties", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns where the effective properties are kept
+   *
+   * @return the storage mode
+   */
+  public StorageMode getStorageMode() {
+    return storageMode;
+  }
+
+  /**
+   * Changes where the effective properties are kept.  The current properties are moved right away and later
+   * reloads keep to the new mode.  To keep the properties off the heap from the first load on, pass the mode in
+   * the {@link ClearSettings} instead.
+   *
+   * Off the heap, nothing but the off-heap store keeps the properties: the cached translations of
+   * {@link PropertyServiceImpl} are dropped after every load, so unchanged bundles are translated again on
+   * reload.  {@link #getProperties()}, {@link #getKeys()} and {@link #getKeys(String)} decode every property on
+   * each call.  Use {@link #getBytes(String)} or {@link #getCharSequence(String)} to read large values without a
+   * String copy.
+   *
+   * @param storageMode the storage mode
+   */
+  public void setStorageMode(StorageMode storageMode) {
+    synchronized (reloadLock) {
+      this.storageMode = storageMode;
+      Snapshot current = snapshot;
+      if (current != null) {
+        snapshot = current.withStorage(storageMode);
+        refreshBindings();
+        relayer();
+      }
+      if (storageMode == StorageMode.OFF_HEAP) {
+        releaseTranslations();
+      }
+    }
+  }
+
+  /**
+   * Drops the translations the property service caches between loads.  Off the heap, they would be the only
+   * copy of the properties left on the heap
+   */
+  private void releaseTranslations() {
+    if (propertyService instanceof PropertyServiceImpl) {
+      ((PropertyServiceImpl) propertyService).clearTranslations();
+    }
+  }
+
+  /**
+   * Returns how loaded properties are logged
+   *
+   * @return the dump mode
+   */
+  public DumpMode getDumpMode() {
+    return dumpMode;
+  }
+
+  /**
+   * Changes how loaded properties are logged from the next reload on.  The first load runs in the constructor and
+   * is logged with the mode of the {@link ClearSettings}
+   *
+   * @param dumpMode the dump mode
+   */
+  public void setDumpMode(DumpMode dumpMode) {
+    this.dumpMode = dumpMode;
+  }
+
+  /**
+   * Writes the current properties to a binary snapshot that {@link #Clear(Initializer, Validator, PropertyService,
+   * File)} can start from.
+   *
+   * The snapshot holds the effective properties for the current lookUps, so it has to be compiled for each set of
+   * lookUps.  The lookUps and a checksum of every bundle are recorded and checked when the snapshot is opened.
+   *
+   * @param snapshotFile the file to write
+   * @throws ClearException thrown if the snapshot can't be written
+   */
+  public void compileSnapshot(File snapshotFile) throws ClearException {
+    Snapshot current = snapshot;
+    try {
+      BinaryPropertyWriter.write(current.properties().values(), current.lookUps, current.sources, snapshotFile);
+    } catch (IOException e) {
+      throw new ClearException("Unable to write CLEAR snapshot '" + snapshotFile + "'", e);
+    }
+  }
+
+  /**
+   * Re-runs the initializer, load and filter pipeline and atomically swaps in the result.
+   *
+   * The new properties are built off to the side while readers keep using the current ones.  If any step fails,
+   * the current properties stay in place and the failure is rethrown.
+   *
+   * @throws ClearException thrown if the properties could not be reloaded
+   */
+  public void reload() throws ClearException {
+    synchronized (reloadLock) {
+      if (logger.isInfoEnabled()) {
+        logger.info("Reloading CLEAR properties");
+      }
+
+      // bundles loaded through ResourceBundle.getBundle are cached, so drop them to pick up changes
+      ResourceBundle.clearCache(initializer.getClass().getClassLoader());
+
+      InitReport.Recorder recorder = new InitReport.Recorder(true);
+      Snapshot loaded;
+      try {
+        loaded = load(recorder);
+      } catch (ClearException e) {
+        logger.error("Failed to reload CLEAR properties.  Keeping the current properties", e);
+        throw e;
+      } catch (RuntimeException e) {
+        logger.error("Failed to reload CLEAR properties.  Keeping the current properties", e);
+        throw new ClearException("Failed to reload CLEAR properties", e);
+      }
+
+      Snapshot previous = snapshot;
+      snapshot = loaded;
+      refreshBindings();
+      relayer();
+
+      recorder.start(InitReport.Phase.PRINT_PROPERTIES);
+      dump(previous, loaded);
+      report(recorder);
+
+      notifyListeners(previous, loaded);
+    }
+  }
+
+  /**
+   * Converts the values of every live interface binding for the snapshot just published, so callers don't convert
+   * them on their first read
+   */
+  private void refreshBindings() {
+    for (WeakReference<InterfaceBinding> reference : bindings) {
+      InterfaceBinding binding = reference.get();
+      if (binding == null) {
+        bindings.remove(reference);
+      } else {
+        binding.refresh();
+      }
+    }
+  }
+
+  /**
+   * Layers every live Clear layered over this one over the snapshot just published
+   */
+  private void relayer() {
+    Snapshot current = snapshot;
+    for (WeakReference<Clear> reference : layers) {
+      Clear layer = reference.get();
+      if (layer == null) {
+        layers.remove(reference);
+      } else {
+        layer.rebase(current);
+      }
+    }
+  }
+
+  /**
+   * Layers the overrides of this Clear over a new snapshot of its base and publishes the result
+   *
+   * @param baseSnapshot the snapshot the base just published
+   */
+  private void rebase(Snapshot baseSnapshot) {
+    synchronized (reloadLock) {
+      Snapshot previous = snapshot;
+      // a destroyed layer has nothing to relayer
+      if (previous == null) {
+        return;
+      }
+
+      Snapshot relayered = previous.withBase(baseSnapshot);
+      if (relayered == previous) {
+        return;
+      }
+
+      snapshot = relayered;
+      refreshBindings();
+      relayer();
+
+      if (logger.isDebugEnabled()) {
+        logger.debug("Layered CLEAR properties over the reloaded base");
+      }
+      notifyListeners(previous, relayered);
+    }
+  }
+
+  /**
+   * Computes the key-level differences between two snapshots and hands them to the listeners
+   *
+   * @param previous the snapshot before the reload
+   * @param current the snapshot after the reload
+   */
+  private void notifyListeners(Snapshot previous, Snapshot current) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+
+    Map<String, String> oldValues = new HashMap<String, String>();
+    Map<String, String> newValues = new HashMap<String, String>();
+    Map<String, ClearProperty> previousProperties = previous.properties();
+    Map<String, ClearProperty> currentProperties = current.properties();
+    for (Map.Entry<String, ClearProperty> entry : previousProperties.entrySet()) {
+      String key = entry.getKey();
+      String oldValue = entry.getValue().getValue();
+      ClearProperty property = currentProperties.get(key);
+      String newValue = property == null ? null : property.getValue();
+      if (!oldValue.equals(newValue)) {
+        oldValues.put(key, oldValue);
+        newValues.put(key, newValue);
+      }
+    }
+    for (Map.Entry<String, ClearProperty> entry : currentProperties.entrySet()) {
+      String key = entry.getKey();
+      if (!previousProperties.containsKey(key)) {
+        oldValues.put(key, null);
+        newValues.put(key, entry.getValue().getValue());
+      }
+    }
+
+    if (oldValues.isEmpty()) {
+      return;
+    }
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("CLEAR properties changed on reload: " + oldValues.keySet());
+    }
+
+    for (ListenerRegistration listener : listeners) {
+      listener.notify(this, oldValues, newValues);
+    }
+  }
+
+  /**
+   * Runs the initialization pipeline and builds a new snapshot from it without publishing it
+   *
+   * @param recorder records the phases of the run
+   * @return the snapshot
+   */
+  private Snapshot load(InitReport.Recorder recorder) {
+    return load(initialize(recorder), recorder);
+  }
+
+  /**
+   * Runs the initializer and validates the context it produced
+   *
+   * @param recorder records the phases of the run
+   * @return the context
+   */
+  private ClearContext initialize(InitReport.Recorder recorder) {
+    recorder.start(InitReport.Phase.INIT_CLEAR);
     initializer.initClear();
 
     ClearContext context = initializer.getClearContext();
+    // counted ahead of validation, which rejects missing lists
+    recorder.bundles = context.resourceBundles == null ? 0 : context.resourceBundles.size();
+    recorder.lookUps = context.lookUps == null ? 0 : context.lookUps.size();
 
+    recorder.start(InitReport.Phase.VALIDATE);
     validate(context);
+    return context;
+  }
 
+  /**
+   * Runs the load and filter steps for a validated context and builds a new snapshot without publishing it
+   *
+   * @param context the context
+   * @param recorder records the phases of the run
+   * @return the snapshot
+   */
+  private Snapshot load(ClearContext context, InitReport.Recorder recorder) {
     // stores all clear properties in all bundles
+    recorder.start(InitReport.Phase.LOAD);
     Collection<ClearProperty> allProps = propertyService.load(context.resourceBundles);
+    if (storageMode == StorageMode.OFF_HEAP) {
+      releaseTranslations();
+    }
+    recorder.rawProperties = allProps.size();
 
     // stores all filtered properties.  A filtered property is one that
     // contains a lookup key matching lookUps added during the initialization step
+    recorder.start(InitReport.Phase.FILTER);
     Collection<ClearProperty> filteredProps = propertyService.filter(allProps, context.lookUps);
-
-    properties = new LinkedHashMap<String, ClearProperty>();
-    for (ClearProperty filteredProp : filteredProps) {
-      properties.put(filteredProp.getKey(), filteredProp);
-    }
-
-    printLookUps(context.lookUps);
-    printProperties();
+    recorder.filteredProperties = filteredProps.size();
+
+    recorder.start(InitReport.Phase.SNAPSHOT);
+    Clear layeredOver = base;
+    Snapshot baseSnapshot = layeredOver == null ? null : layeredOver.snapshot;
+    Snapshot loaded = new Snapshot(context, filteredProps, storageMode, baseSnapshot);
+    recorder.end();
+    return loaded;
   }
 
   /**
@@ -95,14 +562,32 @@ public class Clear implements Configuration {
   }
 
   /**
-   * Prints properties to logs
+   * Logs a load according to the dump mode
+   *
+   * @param previous the snapshot before the load, or null for the first load
+   * @param current the loaded snapshot
    */
-  private void printProperties() {
-    Set<ClearProperty> sortedProperties = propertyService.sort(properties.values());
+  private void dump(Snapshot previous, Snapshot current) {
+    DumpMode mode = dumpMode;
+    if (mode == DumpMode.SYNC) {
+      printLookUps(current.lookUps);
+      printProperties(current);
+    } else if (mode == DumpMode.ASYNC && logger.isInfoEnabled()) {
+      dumper.submit(previous, current);
+    }
+  }
+
+  /**
+   * Prints properties to logs, masking the values of secret-looking keys
+   *
+   * @param snapshot the snapshot holding the properties
+   */
+  private void printProperties(Snapshot snapshot) {
     if (logger.isInfoEnabled()) {
+      Set<ClearProperty> sortedProperties = propertyService.sort(snapshot.properties().values());
       logger.info("CLEAR properties loaded:");
       for (ClearProperty property : sortedProperties) {
-        logger.info(property);
+        logger.info(PropertyDumper.line(property));
       }
     }
   }
@@ -126,167 +611,146 @@ public class Clear implements Configuration {
   }
 
   /**
-   * Returns the entire map of properties
+   * Returns the report of the last successful initialization or reload, for pinning down where load time goes
+   *
+   * @return the report
+   */
+  public InitReport getInitReport() {
+    return initReport;
+  }
+
+  /**
+   * Returns the entire map of properties.  The map is unmodifiable and is not affected by later reloads
    *
    * @return the map of properties
    */
   public Map<String, ClearProperty> getProperties() {
-    return properties;
+    return snapshot.properties();
   }
 
   @Override
   public Set<String> getKeys() {
-    return properties.keySet();
+    return snapshot.properties().keySet();
   }
 
+  /**
+   * Returns the keys under the prefix as a sorted view over the key index of the current properties.  The index is
+   * built along with the properties, except for properties kept off the heap, or layered over a base, or read
+   * from a compiled snapshot, where it's built on the first prefix query
+   *
+   * @param prefix the key prefix
+   * @return the unmodifiable keys
+   */
   @Override
-  public String getString(String key, String defaultValue) {
-    ClearProperty property = properties.get(key);
-
-    if (property == null) {
-      return defaultValue;
-    } else {
-      return property.getValue();
-    }
+  public Set<String> getKeys(String prefix) {
+    return snapshot.keyIndex().keys(prefix);
   }
 
   @Override
-  public String getString(String key) {
-    return getString(key, null);
+  public ConfigurationStats getStats() {
+    return stats;
   }
 
   @Override
-  public int getInt(String key, Integer defaultValue) {
-    String anIntStr = getString(key);
-
-    if (anIntStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No int value exist for key '" + key + "' and no default value was specified.");
-      }
-      return defaultValue;
-    }
-
-    try {
-      return new Integer(anIntStr);
-    } catch (NumberFormatException e) {
-      throw new ClearException(e);
-    }
+  public void addListener(Collection<String> keys, ConfigurationListener listener, Executor executor) {
+    listeners.add(new ListenerRegistration(keys, listener, executor));
   }
 
   @Override
-  public int getInt(String key) {
-    return getInt(key, null);
+  public void addListener(String prefix, ConfigurationListener listener, Executor executor) {
+    listeners.add(new ListenerRegistration(prefix, listener, executor));
   }
 
   @Override
-  public long getLong(String key, Long defaultValue) {
-    String aLongStr = getString(key);
-
-    if (aLongStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No long value exist for key '" + key + "' and no default value was specified.");
+  public void removeListener(ConfigurationListener listener) {
+    for (ListenerRegistration registration : listeners) {
+      if (registration.listener == listener) {
+        listeners.remove(registration);
       }
-      return defaultValue;
-    }
-
-    try {
-      return new Long(aLongStr);
-    } catch (NumberFormatException e) {
-      throw new ClearException(e);
     }
   }
 
-  @Override
-  public long getLong(String key) {
-    return getLong(key, null);
-  }
-
-  @Override
-  public boolean getBoolean(String key, Boolean defaultValue) {
-    String aBooleanStr = getString(key);
-
-    if (aBooleanStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No boolean value exist for key '" + key + "' and no default value was specified.");
-      }
-      return defaultValue;
-    }
-
-    return Boolean.parseBoolean(aBooleanStr);
-  }
+  /**
+   * Binds overrides to the current thread.  Until the returned scope is closed, value reads and handles of this
+   * Clear on this thread see the overrides, while other threads are unaffected.  Opening a scope inside another
+   * layers the new overrides over the enclosing ones.
+   *
+   * {@link #getKeys()} and {@link #getProperties()} keep returning the shared properties.  Use
+   * {@link ConfigurationScope#getConfiguration()} for a view whose keys include the overrides.
+   *
+   * @param overrides the override values by key.  A null value hides the key
+   * @return the scope, to be closed on this thread
+   */
+  public ConfigurationScope openScope(Map<String, String> overrides) {
+    ScopedConfiguration previous = scope.get();
+    ScopedConfiguration scoped = new ScopedConfiguration(previous == null ? this : previous, overrides);
+    scope.set(scoped);
+    openScopes.incrementAndGet();
 
-  @Override
-  public boolean getBoolean(String key) {
-    return getBoolean(key, null);
+    return new ConfigurationScope(this, scoped, previous);
   }
 
-  @Override
-  public double getDouble(String key, Double defaultValue) {
-    String aDblStr = getString(key);
-
-    if (aDblStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No double value exist for key '" + key + "' and no default value was specified.");
-      }
-      return defaultValue;
+  /**
+   * Unbinds a scope from the current thread
+   *
+   * @param scoped the scope's view
+   * @param previous the enclosing scope's view, or null
+   */
+  void closeScope(ScopedConfiguration scoped, ScopedConfiguration previous) {
+    if (scope.get() != scoped) {
+      throw new ClearException("Configuration scopes must be closed innermost first, on the thread that opened them");
     }
 
-    try {
-      return new Double(aDblStr);
-    } catch (NumberFormatException e) {
-      throw new ClearException(e);
+    if (previous == null) {
+      scope.remove();
+    } else {
+      scope.set(previous);
     }
+    openScopes.decrementAndGet();
   }
 
+  /**
+   * Returns the store reads go to, which is the scoped one while the current thread has a scope open
+   *
+   * @return the property store
+   */
   @Override
-  public double getDouble(String key) {
-    return getDouble(key, null);
-  }
-
-  @Override
-  public float getFloat(String key, Float defaultValue) throws ClearException {
-    String aFloatStr = getString(key);
-
-    if (aFloatStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No double value exist for key '" + key + "' and no default value was specified.");
+  PropertyStore table() {
+    if (openScopes.get() != 0) {
+      ScopedConfiguration scoped = scope.get();
+      if (scoped != null) {
+        return scoped.table();
       }
-      return defaultValue;
     }
 
-    try {
-      return new Float(aFloatStr);
-    } catch (NumberFormatException e) {
-      throw new ClearException(e);
-    }
+    return snapshot.table;
   }
 
   @Override
-  public float getFloat(String key) {
-    return getFloat(key, null);
+  PropertyStore baseTable() {
+    return snapshot.table;
   }
 
   @Override
-  public short getShort(String key, Short defaultValue) throws ClearException {
-    String aShortStr = getString(key);
+  void register(InterfaceBinding binding) {
+    bindings.add(new WeakReference<InterfaceBinding>(binding));
+  }
 
-    if (aShortStr == null) {
-      if (defaultValue == null) {
-        throw new ClearException("No double value exist for key '" + key + "' and no default value was specified.");
+  /**
+   * Returns the files the current properties were loaded from, whether they were loaded through file bundles or
+   * compiled into the snapshot Clear started from.  Used by {@link ResourceBundleWatcher}
+   *
+   * @return the source files
+   */
+  List<File> sourceFiles() {
+    List<File> files = new ArrayList<File>();
+    for (BinaryPropertyStore.Source source : snapshot.sources) {
+      if (source.getFile() != null) {
+        files.add(source.getFile());
       }
-      return defaultValue;
     }
 
-    try {
-      return new Short(aShortStr);
-    } catch (NumberFormatException e) {
-      throw new ClearException(e);
-    }
-  }
-
-  @Override
-  public short getShort(String key) {
-    return getShort(key, null);
+    return files;
   }
 
   /**
@@ -296,10 +760,11 @@ public class Clear implements Configuration {
     if (logger.isInfoEnabled()) {
       logger.info("Destroying CLEAR object model");
     }
+    dumper.close();
     initializer = null;
     validator = null;
     propertyService = null;
-    properties.clear();
-    properties = null;
+    base = null;
+    snapshot = null;
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Settings a {@link Clear} needs before its first load, which runs in the constructor.
+ *
+ * Under Guice the settings are injected into the Clear constructor, and each setting comes from its optional named
+ * binding:
+ *
+ * <pre>
+ * bind(StorageMode.class).annotatedWith(Names.named(Clear.STORAGE_MODE)).toInstance(StorageMode.OFF_HEAP);
+ * </pre>
+ *
+ * @author jhumphrey
+ */
+public class ClearSettings {
+
+  private StorageMode storageMode = StorageMode.HEAP;
+  private DumpMode dumpMode = DumpMode.SYNC;
+
+  /**
+   * @return where the properties are kept from the first load on
+   */
+  public StorageMode getStorageMode() {
+    return storageMode;
+  }
+
+  /**
+   * @param storageMode where the properties are kept from the first load on, {@link StorageMode#HEAP} by default
+   * @return these settings
+   */
+  @Inject(optional = true)
+  public ClearSettings setStorageMode(@Named(Clear.STORAGE_MODE) StorageMode storageMode) {
+    this.storageMode = storageMode;
+    return this;
+  }
+
+  /**
+   * @return how loaded properties are logged from the first load on
+   */
+  public DumpMode getDumpMode() {
+    return dumpMode;
+  }
+
+  /**
+   * @param dumpMode how loaded properties are logged from the first load on, {@link DumpMode#SYNC} by default
+   * @return these settings
+   */
+  @Inject(optional = true)
+  public ClearSettings setDumpMode(@Named(Clear.DUMP_MODE) DumpMode dumpMode) {
+    this.dumpMode = dumpMode;
+    return this;
+  }
+}
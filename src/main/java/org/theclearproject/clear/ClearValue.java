@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.inject.BindingAnnotation;
+
+/**
+ * Names the property behind a method of an interface bound through {@link Configuration#bind(Class)}.  Methods
+ * without the annotation read the property named after the method.
+ *
+ * Also the binding annotation for values injected through {@link org.theclearproject.clear.guice.ClearModule}.
+ *
+ * @author jhumphrey
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD, ElementType.PARAMETER})
+@BindingAnnotation
+public @interface ClearValue {
+
+  /**
+   * Marks the absence of a default value
+   */
+  String NO_DEFAULT = "\u0000";
+
+  /**
+   * @return the property key
+   */
+  String value();
+
+  /**
+   * @return the value used when the property is undefined.  Only applies to bound interfaces
+   */
+  String defaultValue() default NO_DEFAULT;
+}
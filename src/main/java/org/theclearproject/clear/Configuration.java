@@ -16,7 +16,11 @@
 
 package org.theclearproject.clear;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.google.inject.ImplementedBy;
 
@@ -35,6 +39,23 @@ public interface Configuration {
    */
   Set<String> getKeys();
 
+  /**
+   * Returns the configuration property keys that start with the prefix.  Keys are kept sorted, so this costs
+   * O(log n) plus the keys read rather than a scan of every key
+   *
+   * @param prefix the key prefix, such as "db.pool.".  The empty string returns every key
+   * @return the matching keys
+   */
+  Set<String> getKeys(String prefix);
+
+  /**
+   * Returns the per-key access counts.  Counting is off until enabled through
+   * {@link ConfigurationStats#setMode(StatsMode)}
+   *
+   * @return the access counts
+   */
+  ConfigurationStats getStats();
+
   /**
    * Returns the string value associated to the key.
    * If no key is defined, then the default value is returned
@@ -166,4 +187,160 @@ public interface Configuration {
    * @return the short value associated to the property key
    */
   short getShort(String key);
+
+  /**
+   * Returns the UTF-8 encoded value associated to the key, for callers that consume bytes directly.
+   * With {@link StorageMode#OFF_HEAP} storage the buffer is a view of the stored bytes
+   *
+   * @param key the property key
+   * @return a read-only buffer over the value, or null if no key is defined
+   */
+  ByteBuffer getBytes(String key);
+
+  /**
+   * Returns the value associated to the key as a CharSequence.
+   * With {@link StorageMode#OFF_HEAP} storage ASCII values are read in place rather than copied into a String
+   *
+   * @param key the property key
+   * @return the value, or null if no key is defined
+   */
+  CharSequence getCharSequence(String key);
+
+  /**
+   * Returns a handle to the string value associated to the key.
+   *
+   * The key is resolved once, so reading through the handle skips the key lookup and string parsing.  Resolve
+   * handles at wiring time and keep them, rather than resolving one per read.
+   *
+   * @param key the property key
+   * @return the string property handle
+   */
+  StringHandle stringHandle(String key);
+
+  /**
+   * Returns a handle to the int value associated to the key.
+   *
+   * @param key the property key
+   * @return the int property handle
+   */
+  IntHandle intHandle(String key);
+
+  /**
+   * Returns a handle to the long value associated to the key.
+   *
+   * @param key the property key
+   * @return the long property handle
+   */
+  LongHandle longHandle(String key);
+
+  /**
+   * Returns a handle to the boolean value associated to the key.
+   *
+   * @param key the property key
+   * @return the boolean property handle
+   */
+  BooleanHandle booleanHandle(String key);
+
+  /**
+   * Returns a handle to the double value associated to the key.
+   *
+   * @param key the property key
+   * @return the double property handle
+   */
+  DoubleHandle doubleHandle(String key);
+
+  /**
+   * Returns a handle to the float value associated to the key.
+   *
+   * @param key the property key
+   * @return the float property handle
+   */
+  FloatHandle floatHandle(String key);
+
+  /**
+   * Returns a handle to the short value associated to the key.
+   *
+   * @param key the property key
+   * @return the short property handle
+   */
+  ShortHandle shortHandle(String key);
+
+  /**
+   * Returns a view of this configuration with the given values overriding its own.  This configuration isn't
+   * modified.
+   *
+   * The view costs time and memory in the number of overrides only and keeps following this configuration across
+   * reloads.  A read through the view takes one extra probe.  A null value hides the key from the view.
+   *
+   * @param overrides the override values by key
+   * @return the view
+   */
+  Configuration withOverrides(Map<String, String> overrides);
+
+  /**
+   * Returns a view of the properties whose keys start with the prefix, addressed by the rest of their key.  With a
+   * prefix of "db.pool.", <code>getInt("size")</code> on the view reads "db.pool.size".
+   *
+   * The view copies nothing and follows this configuration across reloads, so a component can be handed just its
+   * namespace.
+   *
+   * @param prefix the key prefix
+   * @return the view
+   */
+  Configuration getSubset(String prefix);
+
+  /**
+   * Implements a configuration interface whose methods each return a property.  A method reads the key named by
+   * its {@link ClearValue} annotation, or the key named after the method.  Methods take no parameters and return
+   * a String, CharSequence, enum, primitive or primitive wrapper.  Undefined values are null for object types and
+   * fail for primitives unless a default is given.
+   *
+   * Every value is converted when the interface is bound, so missing or malformed values fail right away and a
+   * call only reads the converted value.  Once the properties are reloaded, the next call converts the values
+   * again and swaps them in as a whole.  Bind the interface once and keep the instance.
+   *
+   * @param type the interface
+   * @return the implementation
+   * @throws ClearException thrown if the interface can't be bound or a value is missing or malformed
+   */
+  <T> T bind(Class<T> type) throws ClearException;
+
+  /**
+   * Returns an accessor reading the keys of a schema by id.  Every key of the schema is resolved once per set of
+   * properties, so a read by id skips hashing the key.  Keep the accessor rather than asking for one per read.
+   *
+   * @param schema the keys to read, usually generated by {@link KeySchemaGenerator}
+   * @return the accessor
+   */
+  KeyAccessor accessor(KeySchema schema);
+
+  /**
+   * Registers a listener notified when any of the given properties change on reload.
+   *
+   * Each reload produces at most one event per listener, holding only the registered properties that changed.
+   * The listener is called on the given executor, so a slow listener doesn't hold up the reload or other
+   * listeners.
+   *
+   * @param keys the property keys to listen to
+   * @param listener the listener
+   * @param executor the executor the listener is called on
+   */
+  void addListener(Collection<String> keys, ConfigurationListener listener, Executor executor);
+
+  /**
+   * Registers a listener notified when any property whose key starts with the prefix changes on reload.
+   *
+   * @param prefix the key prefix to listen to.  The empty string listens to all properties
+   * @param listener the listener
+   * @param executor the executor the listener is called on
+   * @see #addListener(java.util.Collection, ConfigurationListener, java.util.concurrent.Executor)
+   */
+  void addListener(String prefix, ConfigurationListener listener, Executor executor);
+
+  /**
+   * Removes every registration of the listener
+   *
+   * @param listener the listener
+   */
+  void removeListener(ConfigurationListener listener);
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch of property changes produced by one reload.
+ *
+ * A property that was added has no old value, and a property that was removed has no new value.
+ *
+ * @author jhumphrey
+ */
+public class ConfigurationChangeEvent {
+
+  private final Configuration configuration;
+  private final Map<String, String> oldValues;
+  private final Map<String, String> newValues;
+
+  public ConfigurationChangeEvent(Configuration configuration, Map<String, String> oldValues, Map<String, String> newValues) {
+    this.configuration = configuration;
+    this.oldValues = Collections.unmodifiableMap(oldValues);
+    this.newValues = Collections.unmodifiableMap(newValues);
+  }
+
+  /**
+   * Returns the configuration that changed
+   *
+   * @return the configuration
+   */
+  public Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Returns the keys of the properties that were added, removed or given a different value
+   *
+   * @return the changed keys
+   */
+  public Set<String> getChangedKeys() {
+    return oldValues.keySet();
+  }
+
+  /**
+   * Returns the value of the property before the reload
+   *
+   * @param key the property key
+   * @return the old value, or null if the property was added
+   */
+  public String getOldValue(String key) {
+    return oldValues.get(key);
+  }
+
+  /**
+   * Returns the value of the property after the reload
+   *
+   * @param key the property key
+   * @return the new value, or null if the property was removed
+   */
+  public String getNewValue(String key) {
+    return newValues.get(key);
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigurationChangeEvent" + getChangedKeys();
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+/**
+ * Listener notified when configuration properties change on reload
+ *
+ * @author jhumphrey
+ */
+public interface ConfigurationListener {
+
+  /**
+   * Called once per reload with the properties this listener registered for that changed.  Called on the
+   * executor the listener was registered with
+   *
+   * @param event the change event
+   */
+  void configurationChanged(ConfigurationChangeEvent event);
+}
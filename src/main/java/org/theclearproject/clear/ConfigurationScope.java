@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.io.Closeable;
+
+/**
+ * Overrides bound to the current thread by {@link Clear#openScope(java.util.Map)}.
+ *
+ * While the scope is open, every value read and handle of that Clear on the opening thread sees the overrides.
+ * Scopes nest, and must be closed on the thread that opened them, innermost first:
+ *
+ * <pre>
+ * try (ConfigurationScope scope = clear.openScope(overrides)) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author jhumphrey
+ */
+public final class ConfigurationScope implements Closeable {
+
+  private final Clear clear;
+  private final ScopedConfiguration configuration;
+  private final ScopedConfiguration previous;
+  private boolean closed;
+
+  ConfigurationScope(Clear clear, ScopedConfiguration configuration, ScopedConfiguration previous) {
+    this.clear = clear;
+    this.configuration = configuration;
+    this.previous = previous;
+  }
+
+  /**
+   * Returns the scoped view.  Unlike reads through the Clear itself, reads through the view see the overrides on
+   * any thread
+   *
+   * @return the scoped configuration
+   */
+  public Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Unbinds the overrides from the thread, restoring the enclosing scope if any.  Closing twice has no effect
+   *
+   * @throws ClearException thrown if called from another thread or while a nested scope is still open
+   */
+  @Override
+  public void close() throws ClearException {
+    if (!closed) {
+      clear.closeScope(configuration, previous);
+      closed = true;
+    }
+  }
+}
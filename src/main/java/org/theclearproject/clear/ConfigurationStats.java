@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-key access counts for a {@link Configuration}: hits, misses, misses that fell back to a default value and
+ * values that couldn't be converted to the requested type.
+ *
+ * Every read path is counted: the getters, {@link PropertyHandle handles} along with the Guice providers built on
+ * them, {@link KeyAccessor key accessors} and {@link Configuration#bind(Class) bound interfaces}.  Checking
+ * whether a handle is defined isn't counted as a read.
+ *
+ * Counting is off by default.  See {@link StatsMode}.  Counters are striped by thread so concurrent readers
+ * of the same key don't all contend on one memory location.  Each stripe is padded out to one 64 byte cache line,
+ * which costs 272 bytes per key read while counting is on.
+ *
+ * Keys that are defined are bounded by the configuration, but misses can come from any key a caller asks for, so
+ * at most {@link #MAX_MISSED_KEYS} keys are tracked for misses.  Past that, misses of keys that aren't already
+ * tracked are only counted in {@link #getUntrackedMisses()}.
+ *
+ * @author jhumphrey
+ */
+public class ConfigurationStats {
+
+  /**
+   * In {@link StatsMode#SAMPLED} mode, one in this many reads is counted
+   */
+  public static final int SAMPLE_RATE = 64;
+
+  /**
+   * The most keys tracked because they were missed
+   */
+  public static final int MAX_MISSED_KEYS = 1024;
+
+  private static final int HITS = 0;
+  private static final int MISSES = 1;
+  private static final int DEFAULT_FALLBACKS = 2;
+  private static final int PARSE_FAILURES = 3;
+
+  // must be a power of two
+  private static final int STRIPES = 4;
+  // longs between the starts of two stripes, one cache line
+  private static final int STRIPE_WIDTH = 8;
+
+  private final ConcurrentMap<String, AtomicLongArray> counters = new ConcurrentHashMap<String, AtomicLongArray>();
+  // keys added by a miss, and misses of keys that weren't added past the cap
+  private final AtomicInteger missedKeys = new AtomicInteger();
+  private final AtomicLong untrackedMisses = new AtomicLong();
+
+  private volatile StatsMode mode = StatsMode.OFF;
+
+  public StatsMode getMode() {
+    return mode;
+  }
+
+  public void setMode(StatsMode mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * Returns whether reads are being counted.  Checked by the read path before doing any other work
+   *
+   * @return false if the mode is {@link StatsMode#OFF}
+   */
+  boolean isEnabled() {
+    return mode != StatsMode.OFF;
+  }
+
+  /**
+   * Counts a read of the key
+   *
+   * @param key the property key
+   * @param hit whether the key was defined
+   * @param defaulted whether a default value was provided
+   */
+  void recordRead(String key, boolean hit, boolean defaulted) {
+    int increment = increment();
+    if (increment == 0) {
+      return;
+    }
+
+    AtomicLongArray keyCounters = hit ? counters(key) : missedCounters(key);
+    if (keyCounters == null) {
+      untrackedMisses.addAndGet(increment);
+      return;
+    }
+
+    int stripe = stripe();
+    if (hit) {
+      keyCounters.addAndGet(stripe + HITS, increment);
+    } else {
+      keyCounters.addAndGet(stripe + MISSES, increment);
+      if (defaulted) {
+        keyCounters.addAndGet(stripe + DEFAULT_FALLBACKS, increment);
+      }
+    }
+  }
+
+  /**
+   * Counts a value of the key that couldn't be converted
+   *
+   * @param key the property key
+   */
+  void recordParseFailure(String key) {
+    // failures are rare, so they're never sampled
+    counters(key).incrementAndGet(stripe() + PARSE_FAILURES);
+  }
+
+  /**
+   * Returns the keys that have been read since the last reset
+   *
+   * @return the keys
+   */
+  public Set<String> getKeys() {
+    return Collections.unmodifiableSet(counters.keySet());
+  }
+
+  public long getHits(String key) {
+    return sum(key, HITS);
+  }
+
+  public long getMisses(String key) {
+    return sum(key, MISSES);
+  }
+
+  public long getDefaultFallbacks(String key) {
+    return sum(key, DEFAULT_FALLBACKS);
+  }
+
+  public long getParseFailures(String key) {
+    return sum(key, PARSE_FAILURES);
+  }
+
+  /**
+   * Returns the misses of keys that weren't tracked because {@link #MAX_MISSED_KEYS} keys already were
+   *
+   * @return the misses
+   */
+  public long getUntrackedMisses() {
+    return untrackedMisses.get();
+  }
+
+  /**
+   * Clears all counts
+   */
+  public void reset() {
+    counters.clear();
+    missedKeys.set(0);
+    untrackedMisses.set(0);
+  }
+
+  private int increment() {
+    StatsMode current = mode;
+    if (current == StatsMode.FULL) {
+      return 1;
+    }
+    if (current == StatsMode.SAMPLED && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0) {
+      return SAMPLE_RATE;
+    }
+
+    return 0;
+  }
+
+  private AtomicLongArray counters(String key) {
+    AtomicLongArray keyCounters = counters.get(key);
+    if (keyCounters == null) {
+      AtomicLongArray created = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+      keyCounters = counters.putIfAbsent(key, created);
+      if (keyCounters == null) {
+        keyCounters = created;
+      }
+    }
+
+    return keyCounters;
+  }
+
+  /**
+   * Returns the counters of a missed key, adding them only while fewer than {@link #MAX_MISSED_KEYS} keys were
+   * added by misses
+   *
+   * @param key the property key
+   * @return the counters, or null if the key isn't tracked
+   */
+  private AtomicLongArray missedCounters(String key) {
+    AtomicLongArray keyCounters = counters.get(key);
+    if (keyCounters != null) {
+      return keyCounters;
+    }
+
+    // claims a slot first, so racing misses can't overshoot the cap.  A slot claimed for a key another thread
+    // added in the meantime is given back
+    if (missedKeys.incrementAndGet() > MAX_MISSED_KEYS) {
+      missedKeys.decrementAndGet();
+      return null;
+    }
+
+    AtomicLongArray created = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+    keyCounters = counters.putIfAbsent(key, created);
+    if (keyCounters == null) {
+      return created;
+    }
+
+    missedKeys.decrementAndGet();
+    return keyCounters;
+  }
+
+  private static int stripe() {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_WIDTH;
+  }
+
+  private long sum(String key, int counter) {
+    AtomicLongArray keyCounters = counters.get(key);
+    if (keyCounters == null) {
+      return 0;
+    }
+
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += keyCounters.get(i * STRIPE_WIDTH + counter);
+    }
+
+    return sum;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+/**
+ * How {@link Clear} logs the effective properties after loading them.  In every mode, values of secret-looking
+ * keys such as <code>db.password</code> are masked
+ *
+ * @author jhumphrey
+ */
+public enum DumpMode {
+
+  /**
+   * Every property is logged, one line each, on the loading thread after every load
+   */
+  SYNC,
+
+  /**
+   * The loaded properties are handed to a background thread, which logs them as a single record.  Reloads only log
+   * the keys that changed
+   */
+  ASYNC,
+
+  /**
+   * Nothing is logged
+   */
+  OFF
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Timings and counts of one run of the {@link Clear} load pipeline, on initialization or reload.
+ *
+ * Each {@link Phase} records its wall-clock time and the bytes the loading thread allocated during it.  Allocation
+ * is only measured on JVMs whose thread MXBean reports allocated bytes, HotSpot among them, and is -1 everywhere
+ * else.  Phases that didn't run, such as the pipeline phases when starting from a compiled snapshot, are -1 as
+ * well.
+ *
+ * @author jhumphrey
+ */
+public final class InitReport {
+
+  /**
+   * The phases of the load pipeline, in the order they run
+   */
+  public enum Phase {
+    /**
+     * {@link org.theclearproject.clear.init.Initializer#initClear()}
+     */
+    INIT_CLEAR,
+    /**
+     * Validation of the context the initializer built
+     */
+    VALIDATE,
+    /**
+     * {@link org.theclearproject.clear.property.PropertyService#load}
+     */
+    LOAD,
+    /**
+     * {@link org.theclearproject.clear.property.PropertyService#filter}
+     */
+    FILTER,
+    /**
+     * Building the property store, or opening a compiled snapshot
+     */
+    SNAPSHOT,
+    /**
+     * Logging the lookUps and properties
+     */
+    PRINT_PROPERTIES
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final boolean reload;
+  private final long[] nanos;
+  private final long[] allocatedBytes;
+  private final int bundles;
+  private final int rawProperties;
+  private final int filteredProperties;
+  private final int lookUps;
+
+  private InitReport(Recorder recorder) {
+    this.reload = recorder.reload;
+    this.nanos = recorder.nanos.clone();
+    this.allocatedBytes = recorder.allocatedBytes.clone();
+    this.bundles = recorder.bundles;
+    this.rawProperties = recorder.rawProperties;
+    this.filteredProperties = recorder.filteredProperties;
+    this.lookUps = recorder.lookUps;
+  }
+
+  /**
+   * @return true if the report is for a reload rather than initialization
+   */
+  public boolean isReload() {
+    return reload;
+  }
+
+  /**
+   * @param phase the phase
+   * @return the wall-clock time of the phase in nanoseconds, or -1 if it didn't run
+   */
+  public long getNanos(Phase phase) {
+    return nanos[phase.ordinal()];
+  }
+
+  /**
+   * @param phase the phase
+   * @return the bytes allocated by the loading thread during the phase, or -1 if unknown
+   */
+  public long getAllocatedBytes(Phase phase) {
+    return allocatedBytes[phase.ordinal()];
+  }
+
+  /**
+   * @return the wall-clock time of all phases that ran in nanoseconds
+   */
+  public long getTotalNanos() {
+    long total = 0;
+    for (long phaseNanos : nanos) {
+      if (phaseNanos > 0) {
+        total += phaseNanos;
+      }
+    }
+    return total;
+  }
+
+  public int getBundles() {
+    return bundles;
+  }
+
+  /**
+   * @return the properties in all bundles before filtering, or -1 if they weren't loaded
+   */
+  public int getRawProperties() {
+    return rawProperties;
+  }
+
+  public int getFilteredProperties() {
+    return filteredProperties;
+  }
+
+  public int getLookUps() {
+    return lookUps;
+  }
+
+  /**
+   * Formats the report as a single line of key=value pairs, so it can be grepped out of logs and compared
+   * between runs
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(256);
+    builder.append(reload ? "CLEAR reload" : "CLEAR init")
+      .append(": totalMs=").append(millis(getTotalNanos()))
+      .append(" bundles=").append(bundles)
+      .append(" rawProperties=").append(rawProperties)
+      .append(" filteredProperties=").append(filteredProperties)
+      .append(" lookUps=").append(lookUps);
+    for (Phase phase : PHASES) {
+      long phaseNanos = nanos[phase.ordinal()];
+      if (phaseNanos >= 0) {
+        String name = phase.name().toLowerCase();
+        builder.append(' ').append(name).append("Ms=").append(millis(phaseNanos));
+        long bytes = allocatedBytes[phase.ordinal()];
+        if (bytes >= 0) {
+          builder.append(' ').append(name).append("Bytes=").append(bytes);
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.3f", nanos / 1e6);
+  }
+
+  /**
+   * Times the phases of one pipeline run on the loading thread.  Phases are closed by starting the next one
+   */
+  static final class Recorder {
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final boolean reload;
+    private final long[] nanos = new long[PHASES.length];
+    private final long[] allocatedBytes = new long[PHASES.length];
+    private final long threadId = Thread.currentThread().getId();
+
+    private Phase current;
+    private long startNanos;
+    private long startBytes;
+
+    int bundles;
+    int rawProperties = -1;
+    int filteredProperties;
+    int lookUps;
+
+    /**
+     * @param reload whether the run is a reload
+     */
+    Recorder(boolean reload) {
+      this.reload = reload;
+      Arrays.fill(nanos, -1);
+      Arrays.fill(allocatedBytes, -1);
+    }
+
+    /**
+     * Ends the running phase, if any, and starts the next one
+     *
+     * @param phase the phase to start
+     */
+    void start(Phase phase) {
+      end();
+      current = phase;
+      startBytes = allocatedBytes();
+      startNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the running phase, if any
+     */
+    void end() {
+      if (current == null) {
+        return;
+      }
+
+      long endNanos = System.nanoTime();
+      int index = current.ordinal();
+      nanos[index] = endNanos - startNanos;
+      if (startBytes >= 0) {
+        allocatedBytes[index] = allocatedBytes() - startBytes;
+      }
+      current = null;
+    }
+
+    /**
+     * Ends the running phase and builds the report
+     *
+     * @return the report
+     */
+    InitReport finish() {
+      end();
+      return new InitReport(this);
+    }
+
+    private long allocatedBytes() {
+      return ALLOCATION == null ? -1 : ALLOCATION.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Returns the HotSpot extension of the thread MXBean if it can measure allocation
+     *
+     * @return the bean, or null on JVMs without it or with allocation measurement turned off
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+      try {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+          com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+          if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+            return allocation;
+          }
+        }
+      } catch (LinkageError e) {
+        // com.sun.management isn't there
+      } catch (SecurityException e) {
+        // not allowed to read the MXBean
+      }
+
+      return null;
+    }
+  }
+}
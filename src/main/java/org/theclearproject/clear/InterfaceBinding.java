@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyValue;
+
+/**
+ * Implements a configuration interface for {@link Configuration#bind(Class)}.
+ *
+ * The methods of the interface are resolved to keys and converters once, when the interface is bound.  Every
+ * value is then converted up front into an array with one slot per method, so a call finds the slot of the method
+ * and reads the array, with no key lookup or parsing.  Calls are counted by {@link ConfigurationStats} as reads of
+ * the method's key.
+ *
+ * The array is built once per store.  The binding is registered with the configuration, so when a reload publishes
+ * a new store the values are converted right then, on the reloading thread.  If a value of the new store can't be
+ * converted, the binding keeps the last good value of that method and logs the key.  Stores seen on a thread with
+ * a scope open are converted on first use and cached for as long as the store is alive, so switching between
+ * scoped and unscoped calls doesn't convert again.  A value of such a store that can't be converted only fails
+ * calls to its own method.
+ *
+ * @author jhumphrey
+ */
+final class InterfaceBinding implements InvocationHandler {
+
+  private static final Logger logger = Logger.getLogger(InterfaceBinding.class);
+
+  private final AbstractConfiguration configuration;
+  private final Class<?> type;
+  private final Map<Method, Integer> slots = new HashMap<Method, Integer>();
+  // the Method instances the proxy dispatches with, by slot.  The proxy passes the same instance on every call,
+  // so once seen a method is found by identity without hashing it
+  private final Method[] dispatched;
+  private final String[] names;
+  private final String[] keys;
+  private final Class<?>[] returnTypes;
+  private final PropertyValue[] defaults;
+
+  // the converted values by store.  Values don't reference their store, so stores that are gone drop out
+  private final Map<PropertyStore, Values> converted =
+    Collections.synchronizedMap(new WeakHashMap<PropertyStore, Values>());
+  // the values of the last store the configuration published, the last good values to fall back on
+  private volatile Values published;
+  // the last store seen and its values
+  private volatile Seen seen;
+
+  private InterfaceBinding(AbstractConfiguration configuration, Class<?> type) {
+    this.configuration = configuration;
+    this.type = type;
+
+    Method[] methods = type.getMethods();
+    names = new String[methods.length];
+    keys = new String[methods.length];
+    returnTypes = new Class<?>[methods.length];
+    defaults = new PropertyValue[methods.length];
+    dispatched = new Method[methods.length];
+    for (int i = 0; i < methods.length; i++) {
+      Method method = methods[i];
+      if (method.getParameterTypes().length != 0) {
+        throw new ClearException("Method '" + method.getName() + "' of configuration interface '" + type.getName() +
+          "' can't take parameters");
+      }
+      if (!supported(method.getReturnType())) {
+        throw new ClearException("Method '" + method.getName() + "' of configuration interface '" + type.getName() +
+          "' returns unsupported type '" + method.getReturnType().getName() + "'");
+      }
+
+      ClearValue annotation = method.getAnnotation(ClearValue.class);
+      names[i] = method.getName();
+      keys[i] = annotation == null ? method.getName() : annotation.value();
+      if (annotation != null && !ClearValue.NO_DEFAULT.equals(annotation.defaultValue())) {
+        defaults[i] = new PropertyValue(annotation.defaultValue());
+      }
+      returnTypes[i] = method.getReturnType();
+      slots.put(method, i);
+    }
+  }
+
+  /**
+   * Implements the interface, converting every value right away so missing or malformed values fail the bind
+   *
+   * @param configuration the configuration the values are read from
+   * @param type the interface
+   * @return the implementation
+   * @throws ClearException thrown if the interface can't be bound or a value is missing or malformed
+   */
+  static <T> T bind(AbstractConfiguration configuration, Class<T> type) throws ClearException {
+    if (!type.isInterface()) {
+      throw new ClearException("Only interfaces can be bound to a configuration and '" + type.getName() + "' isn't one");
+    }
+
+    InterfaceBinding binding = new InterfaceBinding(configuration, type);
+    Values values = binding.current();
+    for (String failure : values.failures) {
+      if (failure != null) {
+        throw new ClearException(failure);
+      }
+    }
+    configuration.register(binding);
+
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, binding));
+  }
+
+  /**
+   * Converts the values of the store the configuration just published
+   */
+  void refresh() {
+    valuesOf(configuration.baseTable());
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    for (int i = 0; i < dispatched.length; i++) {
+      if (dispatched[i] == method) {
+        return value(i);
+      }
+    }
+
+    Integer slot = slots.get(method);
+    if (slot != null) {
+      // racing writes store the same instance
+      dispatched[slot] = method;
+      return value(slot);
+    }
+
+    // the only other methods a proxy dispatches are those of Object
+    String name = method.getName();
+    if (name.equals("equals")) {
+      return proxy == args[0];
+    } else if (name.equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    } else {
+      return type.getName() + current().toString();
+    }
+  }
+
+  /**
+   * Returns the converted value of the slot, counting the read when stats are enabled
+   *
+   * @param slot the slot
+   * @return the value
+   * @throws ClearException thrown if the value of the slot couldn't be converted
+   */
+  private Object value(int slot) {
+    Values current = current();
+    ConfigurationStats stats = configuration.getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(keys[slot], current.defined[slot], defaults[slot] != null);
+    }
+
+    String failure = current.failures[slot];
+    if (failure != null) {
+      throw new ClearException(failure);
+    }
+
+    return current.values[slot];
+  }
+
+  private Values current() {
+    PropertyStore table = configuration.table();
+    Seen last = seen;
+    if (last != null && last.table == table) {
+      return last.values;
+    }
+
+    Values values = valuesOf(table);
+    seen = new Seen(table, values);
+    return values;
+  }
+
+  /**
+   * Returns the values of the store, converting them if the store wasn't seen before.  The values of a store the
+   * configuration published fall back on the last good values
+   *
+   * @param table the store
+   * @return the values
+   */
+  private Values valuesOf(PropertyStore table) {
+    Values values = converted.get(table);
+    if (values == null) {
+      boolean publishedStore = table == configuration.baseTable();
+      values = convert(table, publishedStore ? published : null);
+      converted.put(table, values);
+      if (publishedStore) {
+        published = values;
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Converts the value of every slot.  A slot that can't be converted keeps its last good value if there is one,
+   * and otherwise records the failure for calls to its method
+   *
+   * @param table the store
+   * @param lastGood the values to fall back on, or null
+   * @return the values
+   */
+  private Values convert(PropertyStore table, Values lastGood) {
+    Object[] values = new Object[keys.length];
+    boolean[] defined = new boolean[keys.length];
+    String[] failures = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      PropertyValue value = table.get(keys[i]);
+      defined[i] = value != null;
+      if (value == null) {
+        value = defaults[i];
+      }
+
+      try {
+        values[i] = convert(keys[i], value, returnTypes[i]);
+      } catch (ClearException e) {
+        ConfigurationStats stats = configuration.getStats();
+        if (stats.isEnabled()) {
+          stats.recordParseFailure(keys[i]);
+        }
+
+        if (lastGood != null && lastGood.failures[i] == null) {
+          logger.warn(e.getMessage() + ".  Keeping the previous value for method '" + type.getName() + "." +
+            names[i] + "'");
+          values[i] = lastGood.values[i];
+          defined[i] = lastGood.defined[i];
+        } else {
+          failures[i] = e.getMessage();
+        }
+      }
+    }
+
+    return new Values(values, defined, failures);
+  }
+
+  private Object convert(String key, PropertyValue value, Class<?> returnType) {
+    if (value == null) {
+      if (returnType.isPrimitive()) {
+        throw new ClearException("No " + returnType.getName() + " value exist for key '" + key +
+          "' and no default value was specified.");
+      }
+      return null;
+    }
+
+    if (returnType == String.class || returnType == CharSequence.class) {
+      return value.getValue();
+    } else if (returnType == int.class || returnType == Integer.class) {
+      require(key, value, value.isInt(), "an int");
+      return value.getInt();
+    } else if (returnType == long.class || returnType == Long.class) {
+      require(key, value, value.isLong(), "a long");
+      return value.getLong();
+    } else if (returnType == short.class || returnType == Short.class) {
+      require(key, value, value.isShort(), "a short");
+      return value.getShort();
+    } else if (returnType == double.class || returnType == Double.class) {
+      require(key, value, value.isDouble(), "a double");
+      return value.getDouble();
+    } else if (returnType == float.class || returnType == Float.class) {
+      require(key, value, value.isFloat(), "a float");
+      return value.getFloat();
+    } else if (returnType == boolean.class || returnType == Boolean.class) {
+      return value.getBoolean();
+    } else {
+      return enumValue(key, value, returnType);
+    }
+  }
+
+  private static void require(String key, PropertyValue value, boolean converted, String type) {
+    if (!converted) {
+      throw new ClearException("Value '" + value + "' for key '" + key + "' can't be converted to " + type);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object enumValue(String key, PropertyValue value, Class<?> returnType) {
+    try {
+      return Enum.valueOf(returnType.asSubclass(Enum.class), value.getValue().trim());
+    } catch (IllegalArgumentException e) {
+      throw new ClearException("Value '" + value + "' for key '" + key + "' can't be converted to " +
+        returnType.getSimpleName(), e);
+    }
+  }
+
+  private static boolean supported(Class<?> returnType) {
+    return returnType == String.class || returnType == CharSequence.class || returnType.isEnum() ||
+      returnType == int.class || returnType == Integer.class || returnType == long.class || returnType == Long.class ||
+      returnType == short.class || returnType == Short.class || returnType == double.class ||
+      returnType == Double.class || returnType == float.class || returnType == Float.class ||
+      returnType == boolean.class || returnType == Boolean.class;
+  }
+
+  private final class Values {
+    private final Object[] values;
+    // whether the value of each slot was defined, rather than defaulted
+    private final boolean[] defined;
+    // why the value of each slot couldn't be converted, or null
+    private final String[] failures;
+
+    private Values(Object[] values, boolean[] defined, String[] failures) {
+      this.values = values;
+      this.defined = defined;
+      this.failures = failures;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder("{");
+      for (int i = 0; i < keys.length; i++) {
+        builder.append(i == 0 ? "" : ", ").append(keys[i]).append('=').append(failures[i] == null ? values[i] : "?");
+      }
+      return builder.append('}').toString();
+    }
+  }
+
+  private static final class Seen {
+    private final PropertyStore table;
+    private final Values values;
+
+    private Seen(PropertyStore table, Values values) {
+      this.table = table;
+      this.values = values;
+    }
+  }
+}
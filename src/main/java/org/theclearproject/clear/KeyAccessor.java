@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyValue;
+
+/**
+ * Reads the properties of a {@link KeySchema} by key id.
+ *
+ * Every key of the schema is resolved to its slot in the store the configuration published at once, and a read is
+ * then an array load of the slot followed by a read of the store.  Whenever the configuration publishes a new
+ * store, the next read resolves the whole schema again.  Reads on a thread with a scope open look their key up in
+ * the scoped store directly, so they never make the schema resolve again.
+ *
+ * @author jhumphrey
+ */
+public final class KeyAccessor {
+
+  private final AbstractConfiguration configuration;
+  private final KeySchema schema;
+
+  // the slots for the last published store seen
+  private volatile Slots slots;
+
+  KeyAccessor(AbstractConfiguration configuration, KeySchema schema) {
+    this.configuration = configuration;
+    this.schema = schema;
+  }
+
+  /**
+   * @return the schema read by this accessor
+   */
+  public KeySchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns whether the property is currently defined
+   *
+   * @param id the key id
+   * @return true if the property is defined
+   */
+  public boolean isDefined(int id) {
+    return value(id) != null;
+  }
+
+  public String getString(int id) {
+    return getString(id, null);
+  }
+
+  public String getString(int id, String defaultValue) {
+    PropertyValue value = read(id, defaultValue != null);
+    return value == null ? defaultValue : value.getValue();
+  }
+
+  public int getInt(int id) throws ClearException {
+    return getInt(id, null);
+  }
+
+  public int getInt(int id, Integer defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "int");
+    }
+    if (!value.isInt()) {
+      throw conversionFailure(id, value, "an int");
+    }
+
+    return value.getInt();
+  }
+
+  public long getLong(int id) throws ClearException {
+    return getLong(id, null);
+  }
+
+  public long getLong(int id, Long defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "long");
+    }
+    if (!value.isLong()) {
+      throw conversionFailure(id, value, "a long");
+    }
+
+    return value.getLong();
+  }
+
+  public short getShort(int id) throws ClearException {
+    return getShort(id, null);
+  }
+
+  public short getShort(int id, Short defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "short");
+    }
+    if (!value.isShort()) {
+      throw conversionFailure(id, value, "a short");
+    }
+
+    return value.getShort();
+  }
+
+  public double getDouble(int id) throws ClearException {
+    return getDouble(id, null);
+  }
+
+  public double getDouble(int id, Double defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "double");
+    }
+    if (!value.isDouble()) {
+      throw conversionFailure(id, value, "a double");
+    }
+
+    return value.getDouble();
+  }
+
+  public float getFloat(int id) throws ClearException {
+    return getFloat(id, null);
+  }
+
+  public float getFloat(int id, Float defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "float");
+    }
+    if (!value.isFloat()) {
+      throw conversionFailure(id, value, "a float");
+    }
+
+    return value.getFloat();
+  }
+
+  public boolean getBoolean(int id) throws ClearException {
+    return getBoolean(id, null);
+  }
+
+  public boolean getBoolean(int id, Boolean defaultValue) throws ClearException {
+    PropertyValue value = read(id, defaultValue != null);
+    if (value == null) {
+      return required(id, defaultValue, "boolean");
+    }
+
+    return value.getBoolean();
+  }
+
+  /**
+   * Returns the current value of the property, counting the read when stats are enabled
+   *
+   * @param id the key id
+   * @param defaulted whether the caller provided a default value
+   * @return the value, or null if the property isn't defined
+   */
+  private PropertyValue read(int id, boolean defaulted) {
+    PropertyValue value = value(id);
+    ConfigurationStats stats = configuration.getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(schema.key(id), value != null, defaulted);
+    }
+
+    return value;
+  }
+
+  private PropertyValue value(int id) {
+    PropertyStore table = configuration.table();
+    Slots current = slots;
+    if (current == null || current.table != table) {
+      if (table != configuration.baseTable()) {
+        // scoped
+        int slot = table.indexOf(schema.key(id));
+        return slot < 0 ? null : table.valueAt(slot);
+      }
+
+      int[] resolved = new int[schema.size()];
+      for (int i = 0; i < resolved.length; i++) {
+        resolved[i] = table.indexOf(schema.key(i));
+      }
+      current = new Slots(table, resolved);
+      slots = current;
+    }
+
+    int slot = current.slots[id];
+    return slot < 0 ? null : current.table.valueAt(slot);
+  }
+
+  private <T> T required(int id, T defaultValue, String type) {
+    if (defaultValue == null) {
+      throw new ClearException("No " + type + " value exist for key '" + schema.key(id) +
+        "' and no default value was specified.");
+    }
+
+    return defaultValue;
+  }
+
+  private ClearException conversionFailure(int id, PropertyValue value, String type) {
+    ConfigurationStats stats = configuration.getStats();
+    if (stats.isEnabled()) {
+      stats.recordParseFailure(schema.key(id));
+    }
+
+    return new ClearException("Value '" + value + "' for key '" + schema.key(id) + "' can't be converted to " + type);
+  }
+
+  private static final class Slots {
+    private final PropertyStore table;
+    private final int[] slots;
+
+    private Slots(PropertyStore table, int[] slots) {
+      this.table = table;
+      this.slots = slots;
+    }
+  }
+}
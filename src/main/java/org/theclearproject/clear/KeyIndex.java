@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Sorted array of the keys of a {@link Snapshot}, answering prefix queries.
+ *
+ * The keys under a prefix are contiguous in sort order, so both ends of the range are found by binary search and a
+ * query costs O(log n) plus the keys actually read.  The keys are handed out as a view over the range, not copied.
+ *
+ * @author jhumphrey
+ */
+final class KeyIndex {
+
+  private final String[] keys;
+
+  KeyIndex(Collection<String> keys) {
+    this.keys = keys.toArray(new String[keys.size()]);
+    Arrays.sort(this.keys);
+  }
+
+  /**
+   * Returns the keys starting with the prefix
+   *
+   * @param prefix the key prefix.  The empty string matches every key
+   * @return an unmodifiable sorted view of the keys
+   */
+  Set<String> keys(String prefix) {
+    int from = lowerBound(prefix);
+    return new Range(from, upperBound(prefix, from));
+  }
+
+  /**
+   * @return the index of the first key not below the prefix
+   */
+  private int lowerBound(String prefix) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle].compareTo(prefix) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * @return the index of the first key from the lower bound on that doesn't start with the prefix
+   */
+  private int upperBound(String prefix, int from) {
+    int low = from;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle].startsWith(prefix)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  private final class Range extends AbstractSet<String> {
+    private final int from;
+    private final int to;
+
+    private Range(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return key instanceof String && Arrays.binarySearch(keys, from, to, key) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = from;
+
+        @Override
+        public boolean hasNext() {
+          return next < to;
+        }
+
+        @Override
+        public String next() {
+          if (next >= to) {
+            throw new NoSuchElementException();
+          }
+          return keys[next++];
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed list of property keys, each addressed by a dense id: its position in the list.
+ *
+ * Schemas are meant to be generated from the project's bundles by {@link KeySchemaGenerator}, along with one
+ * constant per key holding its id, so keys are checked by the compiler.  Reads go through the
+ * {@link KeyAccessor} returned by {@link Configuration#accessor(KeySchema)}, which resolves every key of the
+ * schema to its slot once per set of properties and then reads by id without hashing the key.
+ *
+ * @author jhumphrey
+ */
+public final class KeySchema {
+
+  /**
+   * Separates the keys in the strings passed to {@link #joined(String...)}
+   */
+  public static final char SEPARATOR = '\u0000';
+
+  private final String[] keys;
+
+  /**
+   * @param keys the keys, in id order
+   */
+  public KeySchema(String... keys) {
+    this.keys = keys.clone();
+  }
+
+  /**
+   * Builds a schema from keys joined by {@link #SEPARATOR}.  Generated classes pass their keys this way, since a
+   * class initializer storing each key into an array runs out of method size at a few thousand keys
+   *
+   * @param chunks the keys in id order, joined by the separator and split across any number of strings
+   * @return the schema
+   */
+  public static KeySchema joined(String... chunks) {
+    List<String> keys = new ArrayList<String>();
+    for (String chunk : chunks) {
+      int start = 0;
+      int end;
+      while ((end = chunk.indexOf(SEPARATOR, start)) >= 0) {
+        keys.add(chunk.substring(start, end));
+        start = end + 1;
+      }
+      keys.add(chunk.substring(start));
+    }
+
+    return new KeySchema(keys.toArray(new String[keys.size()]));
+  }
+
+  /**
+   * Returns the key with the id
+   *
+   * @param id the key id
+   * @return the key
+   */
+  public String key(int id) {
+    return keys[id];
+  }
+
+  /**
+   * @return the number of keys
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * @return the keys, in id order
+   */
+  public List<String> keys() {
+    return Arrays.asList(keys.clone());
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.theclearproject.clear.lookup.LookUpKeyResolver;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertiesParser;
+import org.theclearproject.clear.property.PropertyHandler;
+
+/**
+ * Generates a class holding a {@link KeySchema} of every key defined in a set of properties files, along with one
+ * int constant per key holding its id.  Code then refers to keys through the constants, so a misspelled key fails
+ * to compile:
+ *
+ * <pre>
+ * KeyAccessor keys = clear.accessor(AppKeys.SCHEMA);
+ * int poolSize = keys.getInt(AppKeys.DB_POOL_SIZE);
+ * </pre>
+ *
+ * Keys are read with the <code>(lookUp)key</code> syntax, so a key defined for several lookUps gets one constant.
+ * Ids follow the sorted order of the keys.
+ *
+ * Usage: {@code KeySchemaGenerator <class name> <output directory> <properties file>...}.  Gradle builds run it
+ * through the <code>clearKeys</code> task of <code>gradle/clear-keys.gradle</code>, which compiles the class with
+ * the main sources.
+ *
+ * @author jhumphrey
+ */
+public final class KeySchemaGenerator {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // keeps each string constant well under the class file limit of 65535 bytes
+  private static final int CHUNK_LENGTH = 8192;
+
+  private KeySchemaGenerator() {
+  }
+
+  /**
+   * Collects the keys defined in the files, without their lookUps
+   *
+   * @param bundles the properties files
+   * @return the sorted keys
+   * @throws IOException thrown if a file can't be read
+   */
+  public static SortedSet<String> keys(List<File> bundles) throws IOException {
+    final LookUpKeyResolver resolver = new ParenthesesLookUpKeyResolver();
+    final SortedSet<String> keys = new TreeSet<String>();
+    for (File bundle : bundles) {
+      PropertiesParser.parse(bundle, new PropertyHandler() {
+        @Override
+        public void property(String key, String value) {
+          keys.add(resolver.resolve(key).getKey());
+        }
+      });
+    }
+
+    return keys;
+  }
+
+  /**
+   * Generates the source of the class
+   *
+   * @param className the fully qualified class name
+   * @param keys the keys, in id order
+   * @return the Java source
+   * @throws ClearException thrown if a key can't be held by a schema
+   */
+  public static String generate(String className, Iterable<String> keys) throws ClearException {
+    int dot = className.lastIndexOf('.');
+    String packageName = dot < 0 ? null : className.substring(0, dot);
+    String simpleName = className.substring(dot + 1);
+
+    StringBuilder source = new StringBuilder();
+    if (packageName != null) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("import org.theclearproject.clear.KeySchema;\n\n");
+    source.append("/**\n * CLEAR property keys.  Generated by ").append(KeySchemaGenerator.class.getName())
+      .append(", do not edit\n */\n");
+    source.append("public final class ").append(simpleName).append(" {\n\n");
+
+    StringBuilder constants = new StringBuilder();
+    List<String> chunks = new ArrayList<String>();
+    StringBuilder chunk = new StringBuilder();
+    // counted rather than read off the chunk length, since the empty key adds nothing to it
+    int chunkKeys = 0;
+    Set<String> names = new HashSet<String>(Arrays.asList("SCHEMA"));
+    int id = 0;
+    for (String key : keys) {
+      if (key.indexOf(KeySchema.SEPARATOR) >= 0) {
+        throw new ClearException("Key '" + key + "' contains a NUL character and can't be held by a key schema");
+      }
+
+      if (chunkKeys > 0 && chunk.length() + key.length() > CHUNK_LENGTH) {
+        chunks.add(chunk.toString());
+        chunk.setLength(0);
+        chunkKeys = 0;
+      }
+      if (chunkKeys > 0) {
+        chunk.append(KeySchema.SEPARATOR);
+      }
+      chunk.append(key);
+      chunkKeys++;
+
+      String name = constantName(key);
+      String unique = name;
+      for (int suffix = 2; !names.add(unique); suffix++) {
+        unique = name + "_" + suffix;
+      }
+
+      constants.append("  /** ").append(comment(key)).append(" */\n");
+      constants.append("  public static final int ").append(unique).append(" = ").append(id++).append(";\n\n");
+    }
+    if (chunkKeys > 0) {
+      chunks.add(chunk.toString());
+    }
+
+    source.append("  public static final KeySchema SCHEMA = KeySchema.joined(");
+    for (int i = 0; i < chunks.size(); i++) {
+      source.append(i == 0 ? "\n    " : ",\n    ").append(literal(chunks.get(i)));
+    }
+    source.append(");\n\n");
+    source.append(constants);
+    source.append("  private ").append(simpleName).append("() {\n  }\n}\n");
+
+    return source.toString();
+  }
+
+  /**
+   * Generates the class for the keys of the files and writes it under the output directory
+   *
+   * @param className the fully qualified class name
+   * @param outputDirectory the source root to write to
+   * @param bundles the properties files
+   * @return the written file
+   * @throws IOException thrown if a file can't be read or written
+   */
+  public static File write(String className, File outputDirectory, List<File> bundles) throws IOException {
+    File sourceFile = new File(outputDirectory, className.replace('.', File.separatorChar) + ".java");
+    File directory = sourceFile.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory '" + directory + "'");
+    }
+
+    Files.write(sourceFile.toPath(), generate(className, keys(bundles)).getBytes(UTF_8));
+    return sourceFile;
+  }
+
+  /**
+   * Turns a key into a constant name: <code>db.poolSize</code> becomes <code>DB_POOL_SIZE</code>
+   *
+   * @param key the key
+   * @return the constant name, which may clash with that of another key
+   */
+  static String constantName(String key) {
+    StringBuilder name = new StringBuilder();
+    char previous = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c < 128 && Character.isLetterOrDigit(c)) {
+        if (Character.isUpperCase(c) && (Character.isLowerCase(previous) || Character.isDigit(previous))) {
+          name.append('_');
+        }
+        name.append(Character.toUpperCase(c));
+      } else if (name.length() > 0 && name.charAt(name.length() - 1) != '_') {
+        name.append('_');
+      }
+      previous = c;
+    }
+
+    while (name.length() > 0 && name.charAt(name.length() - 1) == '_') {
+      name.setLength(name.length() - 1);
+    }
+    if (name.length() == 0 || Character.isDigit(name.charAt(0))) {
+      name.insert(0, "KEY_");
+    }
+
+    return name.toString();
+  }
+
+  /**
+   * Quotes a string as a Java literal.  Control characters, the separator among them, get escape sequences rather
+   * than unicode escapes, which javac translates before it reads the literal, so that a line terminator would end
+   * it
+   *
+   * @param value the string
+   * @return the literal
+   */
+  private static String literal(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        literal.append('\\').append(c);
+      } else if (c == '\n') {
+        literal.append("\\n");
+      } else if (c == '\r') {
+        literal.append("\\r");
+      } else if (c < 32) {
+        // always three digits, so a digit that follows isn't read as part of the escape
+        literal.append(String.format("\\%03o", (int) c));
+      } else if (c > 126) {
+        literal.append(String.format("\\u%04x", (int) c));
+      } else {
+        literal.append(c);
+      }
+    }
+
+    return literal.append('"').toString();
+  }
+
+  /**
+   * Escapes a key for a doc comment, where the compiler would still act on a backslash escape or a comment end
+   */
+  private static String comment(String key) {
+    StringBuilder comment = new StringBuilder();
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c == '\\' || c == '/' || c == '<' || c == '>' || c == '&' || c < 32 || c > 126) {
+        comment.append("&#").append((int) c).append(';');
+      } else {
+        comment.append(c);
+      }
+    }
+
+    return comment.toString();
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.err.println("Usage: KeySchemaGenerator <class name> <output directory> <properties file>...");
+      System.exit(1);
+    }
+
+    List<File> bundles = new ArrayList<File>();
+    for (int i = 2; i < args.length; i++) {
+      bundles.add(new File(args[i]));
+    }
+
+    File sourceFile = write(args[0], new File(args[1]), bundles);
+    System.out.println("Wrote CLEAR key schema " + sourceFile.getAbsolutePath());
+  }
+}
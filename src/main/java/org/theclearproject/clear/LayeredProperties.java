@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.theclearproject.clear.property.ClearProperty;
+
+/**
+ * Unmodifiable view of the properties of a layered {@link Snapshot}: the layer's own overrides read in front of
+ * the properties of a shared base snapshot.
+ *
+ * Only the overrides are held here.  The base map is referenced, never copied.
+ *
+ * @author jhumphrey
+ */
+final class LayeredProperties extends AbstractMap<String, ClearProperty> {
+
+  private final Map<String, ClearProperty> base;
+  private final Map<String, ClearProperty> overlay;
+  private final int size;
+
+  private Set<Map.Entry<String, ClearProperty>> entrySet;
+
+  /**
+   * @param base the properties of the shared base snapshot
+   * @param overlay the unmodifiable properties the layer adds or overrides
+   */
+  LayeredProperties(Map<String, ClearProperty> base, Map<String, ClearProperty> overlay) {
+    int size = base.size();
+    for (String key : overlay.keySet()) {
+      if (!base.containsKey(key)) {
+        size++;
+      }
+    }
+
+    this.base = base;
+    this.overlay = overlay;
+    this.size = size;
+  }
+
+  /**
+   * @return the properties of the base this layer reads through to
+   */
+  Map<String, ClearProperty> base() {
+    return base;
+  }
+
+  /**
+   * @return the properties added or overridden on top of the base
+   */
+  Map<String, ClearProperty> overlay() {
+    return overlay;
+  }
+
+  @Override
+  public ClearProperty get(Object key) {
+    ClearProperty property = overlay.get(key);
+    return property != null ? property : base.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, ClearProperty>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new AbstractSet<Map.Entry<String, ClearProperty>>() {
+        @Override
+        public Iterator<Map.Entry<String, ClearProperty>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+
+    return entrySet;
+  }
+
+  /**
+   * Iterates the overlay, then the base entries that aren't overridden
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<String, ClearProperty>> {
+    private final Iterator<Map.Entry<String, ClearProperty>> overlayEntries = overlay.entrySet().iterator();
+    private final Iterator<Map.Entry<String, ClearProperty>> baseEntries = base.entrySet().iterator();
+    private Map.Entry<String, ClearProperty> next;
+
+    @Override
+    public boolean hasNext() {
+      if (next != null) {
+        return true;
+      }
+
+      if (overlayEntries.hasNext()) {
+        next = overlayEntries.next();
+        return true;
+      }
+
+      while (baseEntries.hasNext()) {
+        Map.Entry<String, ClearProperty> entry = baseEntries.next();
+        if (!overlay.containsKey(entry.getKey())) {
+          next = entry;
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public Map.Entry<String, ClearProperty> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      Map.Entry<String, ClearProperty> entry = next;
+      next = null;
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link ConfigurationListener} together with the keys it listens to and the executor it is notified on
+ *
+ * @author jhumphrey
+ */
+final class ListenerRegistration {
+
+  private static final Logger logger = Logger.getLogger(ListenerRegistration.class);
+
+  final ConfigurationListener listener;
+  private final Set<String> keys;
+  private final String prefix;
+  private final Executor executor;
+
+  ListenerRegistration(Collection<String> keys, ConfigurationListener listener, Executor executor) {
+    this.keys = new HashSet<String>(keys);
+    this.prefix = null;
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  ListenerRegistration(String prefix, ConfigurationListener listener, Executor executor) {
+    this.keys = null;
+    this.prefix = prefix;
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  private boolean matches(String key) {
+    return keys != null ? keys.contains(key) : key.startsWith(prefix);
+  }
+
+  /**
+   * Hands the changes this listener registered for to its executor.  Does nothing if none of them changed
+   *
+   * @param configuration the configuration that changed
+   * @param oldValues the old values of all changed properties
+   * @param newValues the new values of all changed properties
+   */
+  void notify(Configuration configuration, Map<String, String> oldValues, Map<String, String> newValues) {
+    Map<String, String> matchedOldValues = new HashMap<String, String>();
+    Map<String, String> matchedNewValues = new HashMap<String, String>();
+    for (Map.Entry<String, String> oldValue : oldValues.entrySet()) {
+      String key = oldValue.getKey();
+      if (matches(key)) {
+        matchedOldValues.put(key, oldValue.getValue());
+        matchedNewValues.put(key, newValues.get(key));
+      }
+    }
+
+    if (matchedOldValues.isEmpty()) {
+      return;
+    }
+
+    final ConfigurationChangeEvent event = new ConfigurationChangeEvent(configuration, matchedOldValues, matchedNewValues);
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            listener.configurationChanged(event);
+          } catch (RuntimeException e) {
+            logger.error("CLEAR configuration listener failed handling " + event, e);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      logger.error("CLEAR configuration listener executor rejected " + event, e);
+    }
+  }
+}
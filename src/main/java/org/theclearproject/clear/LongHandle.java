@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import org.theclearproject.clear.property.PropertyValue;
+
+/**
+ * A {@link PropertyHandle} for long properties
+ *
+ * @author jhumphrey
+ */
+public class LongHandle extends PropertyHandle {
+
+  LongHandle(AbstractConfiguration configuration, String key) {
+    super(configuration, key);
+  }
+
+  /**
+   * Returns the long value of the property
+   *
+   * @return the long value
+   * @throws ClearException thrown if the property is undefined or can't be converted
+   */
+  public long get() throws ClearException {
+    PropertyValue value = requiredValue("long");
+    if (!value.isLong()) {
+      throw conversionFailure(value, "a long");
+    }
+
+    return value.getLong();
+  }
+
+  /**
+   * Returns the long value of the property, or the default value if the property is undefined
+   *
+   * @param defaultValue the default value
+   * @return the long value
+   * @throws ClearException thrown if the property can't be converted
+   */
+  public long get(long defaultValue) throws ClearException {
+    PropertyValue value = read(true);
+    if (value == null) {
+      return defaultValue;
+    }
+    if (!value.isLong()) {
+      throw conversionFailure(value, "a long");
+    }
+
+    return value.getLong();
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.theclearproject.clear.property.ClearProperty;
+
+/**
+ * Logs loaded properties off the loading thread for {@link DumpMode#ASYNC}, and masks the values of secret-looking
+ * keys for every mode.
+ *
+ * The loading thread only hands over the snapshots, which are immutable.  Sorting, diffing, masking and formatting
+ * all happen on a single background thread, so records are written in load order.
+ *
+ * @author jhumphrey
+ */
+final class PropertyDumper {
+
+  static final String MASK = "****";
+
+  // matched anywhere in the key, ignoring case
+  private static final String[] SECRET_WORDS = {"password", "passwd", "secret", "token", "credential", "apikey",
+    "api.key", "privatekey", "private.key"};
+
+  private final Logger logger;
+
+  private ExecutorService executor;
+  private boolean closed;
+
+  /**
+   * @param logger the logger the records are written to
+   */
+  PropertyDumper(Logger logger) {
+    this.logger = logger;
+  }
+
+  /**
+   * Queues a record of a load.  The first load of a Clear is logged in full, later ones as the keys that changed
+   *
+   * @param previous the snapshot before the load, or null for the first load
+   * @param current the snapshot after the load
+   */
+  synchronized void submit(final Snapshot previous, final Snapshot current) {
+    if (closed) {
+      return;
+    }
+
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "clear-property-dump");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // decoding off-heap properties happens here as well
+          logger.info(format(current.lookUps, previous == null ? null : previous.properties(),
+            current.properties()));
+        } catch (RuntimeException e) {
+          logger.warn("Unable to log CLEAR properties", e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Stops the background thread once the queued records are written
+   */
+  synchronized void close() {
+    closed = true;
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Formats a load as one record
+   *
+   * @param lookUps the lookUps of the load
+   * @param previous the properties before the load, or null for the first load
+   * @param current the properties after the load
+   * @return the record
+   */
+  static String format(List<String> lookUps, Map<String, ClearProperty> previous,
+                       Map<String, ClearProperty> current) {
+    StringBuilder lines = new StringBuilder();
+    int changes = 0;
+
+    if (previous == null) {
+      for (String key : new TreeSet<String>(current.keySet())) {
+        append(lines.append("\n  "), current.get(key));
+      }
+    } else {
+      Set<String> keys = new TreeSet<String>(previous.keySet());
+      keys.addAll(current.keySet());
+      for (String key : keys) {
+        ClearProperty before = previous.get(key);
+        ClearProperty after = current.get(key);
+        if (before == null) {
+          append(lines.append("\n  + "), after);
+        } else if (after == null) {
+          lines.append("\n  - ").append(key);
+        } else if (!before.getValue().equals(after.getValue())) {
+          append(lines.append("\n  ~ "), after).append(" (was ").append(value(before)).append(')');
+        } else {
+          continue;
+        }
+        changes++;
+      }
+    }
+
+    StringBuilder record = new StringBuilder(lines.length() + 96);
+    record.append(previous == null ? "CLEAR properties loaded:" : "CLEAR properties reloaded:")
+      .append(" properties=").append(current.size());
+    if (previous != null) {
+      record.append(" changed=").append(changes);
+    }
+    record.append(" lookUps=").append(lookUps == null ? Collections.<String>emptyList() : lookUps);
+
+    return record.append(lines).toString();
+  }
+
+  /**
+   * Formats a property as a log line, masking its value if the key looks like it holds a secret
+   *
+   * @param property the property
+   * @return the line
+   */
+  static String line(ClearProperty property) {
+    return append(new StringBuilder(), property).toString();
+  }
+
+  private static StringBuilder append(StringBuilder builder, ClearProperty property) {
+    String lookUp = property.getLookUpKey().getLookUp();
+    if (lookUp != null && !lookUp.isEmpty()) {
+      builder.append(lookUp).append(": ");
+    }
+    return builder.append(property.getKey()).append('=').append(value(property));
+  }
+
+  private static String value(ClearProperty property) {
+    return isSecret(property.getKey()) ? MASK : property.getValue();
+  }
+
+  /**
+   * Returns whether the key looks like it holds a secret, such as <code>db.password</code> or
+   * <code>auth.apiKey</code>
+   *
+   * @param key the property key
+   * @return true if the value should be masked
+   */
+  static boolean isSecret(String key) {
+    for (String word : SECRET_WORDS) {
+      for (int i = 0, last = key.length() - word.length(); i <= last; i++) {
+        if (key.regionMatches(true, i, word, 0, word.length())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyValue;
+
+/**
+ * A pre-resolved reference to a single configuration property.
+ *
+ * A handle resolves its key to a slot of the {@link org.theclearproject.clear.property.PropertyStore} its
+ * configuration published once, and afterwards reads the value straight out of that slot.  Whenever Clear publishes
+ * a new store, the handle notices the store changed on its next read and resolves its key again.  On a thread with
+ * a scope open the handle looks its key up in the scoped store, keeping the slot of the published store.
+ *
+ * @author jhumphrey
+ */
+public abstract class PropertyHandle {
+
+  private final AbstractConfiguration configuration;
+  private final String key;
+
+  // the slot in the published store.  Immutable, so it can be replaced without locking by whichever reader notices
+  // a new store first
+  private Binding binding;
+
+  PropertyHandle(AbstractConfiguration configuration, String key) {
+    this.configuration = configuration;
+    this.key = key;
+  }
+
+  /**
+   * Returns the property key this handle is bound to
+   *
+   * @return the property key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns whether the property is currently defined
+   *
+   * @return true if the property is defined
+   */
+  public boolean isDefined() {
+    return value() != null;
+  }
+
+  /**
+   * Returns the current value of the property
+   *
+   * @return the value, or null if the property isn't defined
+   */
+  PropertyValue value() {
+    PropertyStore table = configuration.table();
+    Binding current = binding;
+    if (current == null || current.table != table) {
+      if (table != configuration.baseTable()) {
+        // scoped
+        int slot = table.indexOf(key);
+        return slot < 0 ? null : table.valueAt(slot);
+      }
+
+      current = new Binding(table, table.indexOf(key));
+      binding = current;
+    }
+
+    return current.slot < 0 ? null : current.table.valueAt(current.slot);
+  }
+
+  /**
+   * Returns the current value of the property, counting the read when stats are enabled
+   *
+   * @param defaulted whether the caller provided a default value
+   * @return the value, or null if the property isn't defined
+   */
+  PropertyValue read(boolean defaulted) {
+    PropertyValue value = value();
+    ConfigurationStats stats = configuration.getStats();
+    if (stats.isEnabled()) {
+      stats.recordRead(key, value != null, defaulted);
+    }
+
+    return value;
+  }
+
+  /**
+   * Returns the value of the property, failing if the property isn't defined
+   *
+   * @param type the type name used in the exception message
+   * @return the value
+   */
+  PropertyValue requiredValue(String type) {
+    PropertyValue value = read(false);
+    if (value == null) {
+      throw new ClearException("No " + type + " value exist for key '" + key + "' and no default value was specified.");
+    }
+
+    return value;
+  }
+
+  /**
+   * Builds the exception thrown when the value can't be converted to the handle's type, counting the failure when
+   * stats are enabled
+   *
+   * @param value the value
+   * @param type the type name used in the exception message
+   * @return the exception
+   */
+  ClearException conversionFailure(PropertyValue value, String type) {
+    ConfigurationStats stats = configuration.getStats();
+    if (stats.isEnabled()) {
+      stats.recordParseFailure(key);
+    }
+
+    return new ClearException("Value '" + value + "' for key '" + key + "' can't be converted to " + type);
+  }
+
+  @Override
+  public String toString() {
+    PropertyValue value = value();
+    return key + "=" + (value == null ? "<undefined>" : value.getValue());
+  }
+
+  private static final class Binding {
+    private final PropertyStore table;
+    private final int slot;
+
+    private Binding(PropertyStore table, int slot) {
+      this.table = table;
+      this.slot = slot;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the files backing a {@link Clear}'s resource bundles and reloads Clear when they change.
+ *
+ * Only bundles created through {@link org.theclearproject.clear.init.AbstractInitializer#fileResourceBundle}
+ * are backed by a known file and watched, along with the files compiled into the snapshot Clear started from.
+ * Bursts of file events are coalesced: the first event schedules a reload after the debounce window and any
+ * further events inside that window are folded into the same reload.
+ * Since the initializer hands back the same bundle for unchanged files, a reload only re-parses the files
+ * that actually changed.
+ *
+ * @author jhumphrey
+ */
+public class ResourceBundleWatcher implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(ResourceBundleWatcher.class);
+
+  private final Clear clear;
+  private final long debounceMillis;
+  private final AtomicBoolean reloadPending = new AtomicBoolean();
+
+  private final Map<Path, WatchKey> watchedDirectories = new HashMap<Path, WatchKey>();
+  private volatile Set<Path> watchedFiles = Collections.emptySet();
+
+  private WatchService watchService;
+  private ScheduledExecutorService scheduler;
+  private Thread watchThread;
+
+  /**
+   * @param clear the Clear to reload
+   * @param debounceMillis the debounce window in milliseconds.  At most one reload runs per window
+   */
+  public ResourceBundleWatcher(Clear clear, long debounceMillis) {
+    this.clear = clear;
+    this.debounceMillis = debounceMillis;
+  }
+
+  /**
+   * Starts watching the files backing Clear's current resource bundles
+   *
+   * @throws ClearException thrown if the watcher was already started or the files can't be watched
+   */
+  public synchronized void start() throws ClearException {
+    if (watchService != null) {
+      throw new ClearException("Resource bundle watcher already started");
+    }
+
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+    } catch (IOException e) {
+      throw new ClearException("Unable to create the resource bundle watch service", e);
+    }
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "clear-resource-bundle-reload");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    register();
+
+    watchThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        watch();
+      }
+    }, "clear-resource-bundle-watcher");
+    watchThread.setDaemon(true);
+    watchThread.start();
+  }
+
+  /**
+   * Stops watching and cancels any pending reload
+   */
+  @Override
+  public synchronized void close() {
+    if (watchService == null) {
+      return;
+    }
+
+    watchThread.interrupt();
+    scheduler.shutdownNow();
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      logger.warn("Unable to close the resource bundle watch service", e);
+    }
+  }
+
+  /**
+   * Registers the directories of the files backing the current resource bundles, dropping directories that no
+   * longer hold any of them
+   */
+  private synchronized void register() {
+    Set<Path> files = new HashSet<Path>();
+    Set<Path> directories = new HashSet<Path>();
+    for (File sourceFile : clear.sourceFiles()) {
+      Path file = sourceFile.toPath().normalize();
+      files.add(file);
+      directories.add(file.getParent());
+    }
+
+    for (Path directory : directories) {
+      if (!watchedDirectories.containsKey(directory)) {
+        try {
+          WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+          watchedDirectories.put(directory, key);
+        } catch (IOException e) {
+          throw new ClearException("Unable to watch directory '" + directory + "'", e);
+        }
+      }
+    }
+
+    Iterator<Map.Entry<Path, WatchKey>> iterator = watchedDirectories.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Path, WatchKey> entry = iterator.next();
+      if (!directories.contains(entry.getKey())) {
+        entry.getValue().cancel();
+        iterator.remove();
+      }
+    }
+
+    watchedFiles = files;
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Watching CLEAR resource bundle files " + files);
+    }
+  }
+
+  /**
+   * Watch loop.  Runs until the watcher is closed
+   */
+  private void watch() {
+    while (!Thread.currentThread().isInterrupted()) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (InterruptedException e) {
+        return;
+      } catch (ClosedWatchServiceException e) {
+        return;
+      }
+
+      Path directory = (Path) key.watchable();
+      boolean changed = false;
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          changed = true;
+        } else if (watchedFiles.contains(directory.resolve((Path) event.context()))) {
+          changed = true;
+        }
+      }
+      key.reset();
+
+      if (changed) {
+        scheduleReload();
+      }
+    }
+  }
+
+  private void scheduleReload() {
+    if (reloadPending.compareAndSet(false, true)) {
+      scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          reload();
+        }
+      }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void reload() {
+    // events arriving from here on belong to the next window
+    reloadPending.set(false);
+
+    try {
+      clear.reload();
+    } catch (ClearException e) {
+      // Clear has logged the failure and kept its current properties
+      return;
+    }
+
+    // the set of files can change along with their contents.  Nothing else would report a failure on this thread
+    try {
+      register();
+    } catch (ClearException e) {
+      logger.error("Unable to watch the CLEAR resource bundle files after a reload", e);
+    }
+  }
+}
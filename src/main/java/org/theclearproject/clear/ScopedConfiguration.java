@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.theclearproject.clear.property.LayeredPropertyStore;
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyTable;
+
+/**
+ * A {@link Configuration} view with a small set of overrides read in front of another configuration.
+ *
+ * The overrides are held in their own table and layered over whatever store the parent currently reads, so
+ * creating a view costs time in the number of overrides only, and a read costs one probe of the override table
+ * on top of the parent's.  A view follows the parent across reloads.  A null override value hides the key.
+ *
+ * Stats and listeners are those of the parent.
+ *
+ * @author jhumphrey
+ */
+final class ScopedConfiguration extends AbstractConfiguration {
+
+  private final AbstractConfiguration parent;
+  private final PropertyStore overrides;
+  private final Set<String> removed;
+
+  // the layered store for the last store the parent published.  Layered over the published store rather than
+  // table(), so scopes opened on threads never replace it
+  private volatile Layer layer;
+
+  ScopedConfiguration(AbstractConfiguration parent, Map<String, String> overrides) {
+    Map<String, String> values = new HashMap<String, String>();
+    Set<String> removed = new HashSet<String>();
+    for (Map.Entry<String, String> override : overrides.entrySet()) {
+      if (override.getValue() == null) {
+        removed.add(override.getKey());
+      } else {
+        values.put(override.getKey(), override.getValue());
+      }
+    }
+
+    this.parent = parent;
+    this.overrides = new PropertyTable(values);
+    this.removed = removed.isEmpty() ? Collections.<String>emptySet() : Collections.unmodifiableSet(removed);
+  }
+
+  @Override
+  void register(InterfaceBinding binding) {
+    parent.register(binding);
+  }
+
+  @Override
+  PropertyStore table() {
+    PropertyStore base = parent.baseTable();
+    Layer current = layer;
+    if (current == null || current.base != base) {
+      current = new Layer(base, new LayeredPropertyStore(base, overrides, removed, sizeOver(base)));
+      layer = current;
+    }
+
+    return current.store;
+  }
+
+  /**
+   * Counts the keys visible through the overrides in time linear in the number of overrides
+   *
+   * @param base the parent store
+   * @return the number of keys
+   */
+  private int sizeOver(PropertyStore base) {
+    int size = base.size();
+    for (int slot = 0; slot < overrides.capacity(); slot++) {
+      String key = overrides.keyAt(slot);
+      if (key != null && base.indexOf(key) < 0) {
+        size++;
+      }
+    }
+    for (String key : removed) {
+      if (base.indexOf(key) >= 0) {
+        size--;
+      }
+    }
+
+    return size;
+  }
+
+  @Override
+  public Set<String> getKeys() {
+    return getKeys("");
+  }
+
+  /**
+   * Returns the keys of the parent under the prefix with the overrides applied.  Built on each call
+   *
+   * @param prefix the key prefix
+   * @return the keys
+   */
+  @Override
+  public Set<String> getKeys(String prefix) {
+    Set<String> keys = new HashSet<String>(parent.getKeys(prefix));
+    for (int slot = 0; slot < overrides.capacity(); slot++) {
+      String key = overrides.keyAt(slot);
+      if (key != null && key.startsWith(prefix)) {
+        keys.add(key);
+      }
+    }
+    keys.removeAll(removed);
+
+    return Collections.unmodifiableSet(keys);
+  }
+
+  @Override
+  public ConfigurationStats getStats() {
+    return parent.getStats();
+  }
+
+  @Override
+  public void addListener(Collection<String> keys, ConfigurationListener listener, Executor executor) {
+    parent.addListener(keys, listener, executor);
+  }
+
+  @Override
+  public void addListener(String prefix, ConfigurationListener listener, Executor executor) {
+    parent.addListener(prefix, listener, executor);
+  }
+
+  @Override
+  public void removeListener(ConfigurationListener listener) {
+    parent.removeListener(listener);
+  }
+
+  private static final class Layer {
+    private final PropertyStore base;
+    private final PropertyStore store;
+
+    private Layer(PropertyStore base, PropertyStore store) {
+      this.base = base;
+      this.store = store;
+    }
+  }
+}
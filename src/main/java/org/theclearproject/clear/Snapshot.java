@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.theclearproject.clear.init.FileResourceBundle;
+import org.theclearproject.clear.property.BinaryPropertyStore;
+import org.theclearproject.clear.property.BinaryPropertyWriter;
+import org.theclearproject.clear.property.ClearProperty;
+import org.theclearproject.clear.property.LayeredPropertyStore;
+import org.theclearproject.clear.property.PropertySource;
+import org.theclearproject.clear.property.PropertyStore;
+import org.theclearproject.clear.property.PropertyTable;
+
+/**
+ * Immutable result of one pass through the CLEAR load pipeline, or of opening a compiled binary snapshot.
+ *
+ * A snapshot keeps the properties, the lookUps and a fingerprint of each bundle, but not the bundles themselves.
+ * In {@link StorageMode#OFF_HEAP} mode the properties are only held by the off-heap store.
+ *
+ * {@link Clear} publishes a fully built snapshot through a single volatile reference, so readers either see the
+ * previous snapshot or the new one, never a partially built one.
+ *
+ * A snapshot can be layered over the snapshot of a shared base {@link Clear}, in which case it only holds the
+ * overrides loaded for the layer and reads through to the base for the rest.
+ *
+ * @author jhumphrey
+ */
+final class Snapshot {
+
+  final List<String> lookUps;
+  final List<BinaryPropertyStore.Source> sources;
+  final PropertyStore table;
+  final StorageMode storageMode;
+  // the shared snapshot this one is layered over, or null
+  final Snapshot base;
+
+  // the properties of this snapshot itself, which are only the overrides when layered.  Either kept on the heap,
+  // or in a binary store whose properties are only decoded once they're asked for
+  private final Map<String, ClearProperty> own;
+  private final BinaryPropertyStore binary;
+  // kept once decoded, except off-heap, or over an off-heap base, where nothing but the stores is kept
+  private volatile Map<String, ClearProperty> properties;
+  // built with the snapshot on the heap, and on first use for snapshots that avoid holding per-key objects.  Off the
+  // heap it's built on every use instead of being kept
+  private volatile KeyIndex keyIndex;
+
+  Snapshot(ClearContext context, Collection<ClearProperty> filteredProps, StorageMode storageMode) {
+    this(context, filteredProps, storageMode, null);
+  }
+
+  /**
+   * @param context the context the properties were loaded for
+   * @param filteredProps the effective properties, or only the overrides when layered
+   * @param storageMode where to keep the properties
+   * @param base the snapshot to layer over, or null
+   */
+  Snapshot(ClearContext context, Collection<ClearProperty> filteredProps, StorageMode storageMode, Snapshot base) {
+    Map<String, ClearProperty> properties = new LinkedHashMap<String, ClearProperty>();
+    for (ClearProperty filteredProp : filteredProps) {
+      properties.put(filteredProp.getKey(), filteredProp);
+    }
+
+    this.lookUps = Collections.unmodifiableList(new ArrayList<String>(context.lookUps));
+    this.sources = sources(context.resourceBundles);
+    this.storageMode = storageMode;
+    this.base = base;
+    if (storageMode == StorageMode.OFF_HEAP) {
+      this.own = null;
+      this.binary = offHeap(properties.values(), this.lookUps, this.sources);
+      this.table = layer(binary, base);
+    } else {
+      this.own = Collections.unmodifiableMap(properties);
+      this.binary = null;
+      this.table = layer(new PropertyTable(properties.values()), base);
+      if (base == null) {
+        this.properties = own;
+        this.keyIndex = new KeyIndex(properties.keySet());
+      }
+    }
+  }
+
+  /**
+   * A snapshot served from a mapped binary snapshot, caching values as they're read
+   */
+  Snapshot(BinaryPropertyStore binary) {
+    this.lookUps = Collections.unmodifiableList(binary.getLookUps());
+    this.sources = Collections.unmodifiableList(binary.getSources());
+    this.storageMode = StorageMode.HEAP;
+    this.base = null;
+    this.own = null;
+    this.binary = binary;
+    this.table = binary;
+  }
+
+  private Snapshot(Snapshot source, StorageMode storageMode, Map<String, ClearProperty> own,
+                   BinaryPropertyStore binary, Snapshot base) {
+    this.lookUps = source.lookUps;
+    this.sources = source.sources;
+    this.storageMode = storageMode;
+    this.base = base;
+    this.keyIndex = storageMode == StorageMode.HEAP && base == source.base ? source.keyIndex : null;
+    this.own = own;
+    this.binary = binary;
+    this.table = layer(own != null ? new PropertyTable(own.values()) : binary, base);
+  }
+
+  /**
+   * Returns the same properties kept in the given storage mode
+   *
+   * @param mode the storage mode
+   * @return this snapshot if it's already in that mode, otherwise a converted copy
+   */
+  Snapshot withStorage(StorageMode mode) {
+    if (mode == storageMode) {
+      return this;
+    }
+
+    if (mode == StorageMode.OFF_HEAP) {
+      // a mapped snapshot is already off the heap, it only has to stop caching
+      BinaryPropertyStore store = binary != null ? binary.uncached() : offHeap(own.values(), lookUps, sources);
+      return new Snapshot(this, mode, null, store, base);
+    }
+
+    return new Snapshot(this, mode, ownProperties(), null, base);
+  }
+
+  /**
+   * Returns the same overrides layered over another snapshot of the base.  The overrides aren't loaded again,
+   * their stores are shared with this snapshot
+   *
+   * @param base the snapshot to layer over
+   * @return this snapshot if it's already layered over that base, otherwise a relayered copy
+   */
+  Snapshot withBase(Snapshot base) {
+    if (base == this.base) {
+      return this;
+    }
+
+    return new Snapshot(this, storageMode, own, binary, base);
+  }
+
+  /**
+   * Returns the effective properties by key, read through to the base when layered
+   *
+   * @return the unmodifiable properties
+   */
+  Map<String, ClearProperty> properties() {
+    Map<String, ClearProperty> decoded = properties;
+    if (decoded == null) {
+      decoded = base == null ? ownProperties() : new LayeredProperties(base.properties(), ownProperties());
+      if (storageMode == StorageMode.HEAP && (base == null || base.storageMode == StorageMode.HEAP)) {
+        properties = decoded;
+      }
+    }
+
+    return decoded;
+  }
+
+  private Map<String, ClearProperty> ownProperties() {
+    return own != null ? own : binary.properties();
+  }
+
+  /**
+   * Returns the sorted index of the keys, building it if this snapshot didn't
+   *
+   * @return the key index
+   */
+  KeyIndex keyIndex() {
+    KeyIndex index = keyIndex;
+    if (index == null) {
+      index = new KeyIndex(properties().keySet());
+      if (storageMode == StorageMode.HEAP && (base == null || base.storageMode == StorageMode.HEAP)) {
+        keyIndex = index;
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Fingerprints the bundles properties are loaded from, so a compiled snapshot can tell whether a load would
+   * still produce its properties.  File bundles and other {@link PropertySource}s already carry a checksum of
+   * their contents.  Any other bundle, such as one on the classpath, is hashed pair by pair
+   *
+   * @param resourceBundles the bundles
+   * @return the unmodifiable fingerprints, in bundle order
+   */
+  static List<BinaryPropertyStore.Source> sources(List<ResourceBundle> resourceBundles) {
+    List<BinaryPropertyStore.Source> sources = new ArrayList<BinaryPropertyStore.Source>(resourceBundles.size());
+    for (ResourceBundle resourceBundle : resourceBundles) {
+      if (resourceBundle instanceof FileResourceBundle) {
+        FileResourceBundle fileBundle = (FileResourceBundle) resourceBundle;
+        sources.add(new BinaryPropertyStore.Source(fileBundle.getFile(), fileBundle.getLength(),
+          fileBundle.getLastModified(), fileBundle.getChecksum()));
+      } else if (resourceBundle instanceof PropertySource) {
+        sources.add(new BinaryPropertyStore.Source(null, 0, 0, ((PropertySource) resourceBundle).getChecksum()));
+      } else {
+        sources.add(new BinaryPropertyStore.Source(null, 0, 0, checksum(resourceBundle)));
+      }
+    }
+
+    return Collections.unmodifiableList(sources);
+  }
+
+  /**
+   * Hashes every key-value pair of the bundle.  The pair hashes are summed, so the order the bundle lists its
+   * keys in doesn't matter
+   */
+  private static long checksum(ResourceBundle resourceBundle) {
+    long checksum = 0;
+    for (String key : resourceBundle.keySet()) {
+      // 64-bit FNV-1a over the key, a separator and the value
+      long hash = 0xcbf29ce484222325L;
+      hash = fnv(hash, key);
+      hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+      hash = fnv(hash, String.valueOf(resourceBundle.getObject(key)));
+      // spread the bits before summing, so pair hashes don't cancel out
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      checksum += hash;
+    }
+
+    return checksum;
+  }
+
+  private static long fnv(long hash, String string) {
+    for (int i = 0; i < string.length(); i++) {
+      hash = (hash ^ string.charAt(i)) * 0x100000001b3L;
+    }
+
+    return hash;
+  }
+
+  private static PropertyStore layer(PropertyStore own, Snapshot base) {
+    return base == null ? own : new LayeredPropertyStore(base.table, own);
+  }
+
+  private static BinaryPropertyStore offHeap(Collection<ClearProperty> properties, List<String> lookUps,
+                                             List<BinaryPropertyStore.Source> sources) {
+    try {
+      return new BinaryPropertyStore(BinaryPropertyWriter.encode(properties, lookUps, sources, true), false);
+    } catch (IOException e) {
+      // the buffer was just written by the matching writer
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.validation.Validation;
+import java.io.File;
+
+import org.theclearproject.clear.init.Initializer;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * Command-line entry point that compiles a binary snapshot for {@link Clear#Clear(Initializer,
+ * javax.validation.Validator, org.theclearproject.clear.property.PropertyService, File)} to start from.
+ *
+ * Usage: {@code SnapshotCompiler <initializer class> <snapshot file>}.  The initializer must have a public no-arg
+ * constructor.  Properties are loaded with a {@link PropertyServiceImpl} over a
+ * {@link ParenthesesLookUpKeyResolver}, exactly as the Guice wiring does.
+ *
+ * @author jhumphrey
+ */
+public final class SnapshotCompiler {
+
+  private SnapshotCompiler() {
+  }
+
+  /**
+   * Loads the properties through the initializer and writes the snapshot
+   *
+   * @param initializer the initializer
+   * @param snapshotFile the snapshot file
+   * @throws ClearException thrown if the properties can't be loaded or the snapshot can't be written
+   */
+  public static void compile(Initializer initializer, File snapshotFile) throws ClearException {
+    Clear clear = new Clear(initializer, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+    clear.compileSnapshot(snapshotFile);
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.err.println("Usage: SnapshotCompiler <initializer class> <snapshot file>");
+      System.exit(1);
+    }
+
+    Initializer initializer = (Initializer) Class.forName(args[0]).newInstance();
+    File snapshotFile = new File(args[1]);
+    compile(initializer, snapshotFile);
+
+    System.out.println("Wrote CLEAR snapshot " + snapshotFile.getAbsolutePath());
+  }
+}
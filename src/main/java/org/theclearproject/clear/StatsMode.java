@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+/**
+ * How much of the configuration access path is instrumented by {@link ConfigurationStats}
+ *
+ * @author jhumphrey
+ */
+public enum StatsMode {
+
+  /**
+   * Nothing is counted.  Reads pay a single field check
+   */
+  OFF,
+
+  /**
+   * One in {@link ConfigurationStats#SAMPLE_RATE} reads is counted and the counts are scaled up
+   */
+  SAMPLED,
+
+  /**
+   * Every read is counted
+   */
+  FULL
+}
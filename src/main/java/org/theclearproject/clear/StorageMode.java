@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+/**
+ * Where {@link Clear} keeps the effective properties between reads
+ *
+ * @author jhumphrey
+ */
+public enum StorageMode {
+
+  /**
+   * Keys and values are held as Strings along with their parsed representations.  Reads allocate nothing
+   */
+  HEAP,
+
+  /**
+   * Keys and values are held UTF-8 encoded in a direct buffer, or in the mapped snapshot Clear started from, and
+   * decoded on every read.  Suits configurations large enough to weigh on the heap and on GC pauses
+   */
+  OFF_HEAP
+}
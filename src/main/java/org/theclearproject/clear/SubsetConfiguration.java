@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.theclearproject.clear.property.PrefixedPropertyStore;
+import org.theclearproject.clear.property.PropertyStore;
+
+/**
+ * A {@link Configuration} view of the properties of another configuration whose keys start with a prefix,
+ * addressed by the rest of their key.
+ *
+ * The view holds no properties of its own.  Reads prepend the prefix and go to the parent, and the keys are a view
+ * over the parent's keys under the prefix.
+ *
+ * Stats and listeners are those of the parent, and listeners are handed events carrying the full keys.
+ *
+ * @author jhumphrey
+ */
+final class SubsetConfiguration extends AbstractConfiguration {
+
+  private final AbstractConfiguration parent;
+  private final String prefix;
+
+  // the prefixed store for the last store the parent published, and for the last other store seen, which is a
+  // scoped one.  Kept apart so scoped reads never replace the published one
+  private volatile Binding binding;
+  private volatile Binding scoped;
+
+  SubsetConfiguration(AbstractConfiguration parent, String prefix) {
+    this.parent = parent;
+    this.prefix = prefix;
+  }
+
+  @Override
+  void register(InterfaceBinding binding) {
+    parent.register(binding);
+  }
+
+  @Override
+  PropertyStore table() {
+    return prefixed(parent.table());
+  }
+
+  @Override
+  PropertyStore baseTable() {
+    return prefixed(parent.baseTable());
+  }
+
+  private PropertyStore prefixed(PropertyStore store) {
+    Binding current = binding;
+    if (current != null && current.store == store) {
+      return current.prefixed;
+    }
+
+    boolean published = store == parent.baseTable();
+    if (!published) {
+      current = scoped;
+      if (current != null && current.store == store) {
+        return current.prefixed;
+      }
+    }
+
+    current = new Binding(store, new PrefixedPropertyStore(store, prefix, parent.getKeys(prefix).size()));
+    if (published) {
+      binding = current;
+    } else {
+      scoped = current;
+    }
+
+    return current.prefixed;
+  }
+
+  @Override
+  public Set<String> getKeys() {
+    return getKeys("");
+  }
+
+  @Override
+  public Set<String> getKeys(String keyPrefix) {
+    return new StrippedKeys(parent.getKeys(prefix.concat(keyPrefix)));
+  }
+
+  @Override
+  public Configuration getSubset(String keyPrefix) {
+    return parent.getSubset(prefix.concat(keyPrefix));
+  }
+
+  @Override
+  public ConfigurationStats getStats() {
+    return parent.getStats();
+  }
+
+  @Override
+  public void addListener(Collection<String> keys, ConfigurationListener listener, Executor executor) {
+    List<String> prefixedKeys = new ArrayList<String>(keys.size());
+    for (String key : keys) {
+      prefixedKeys.add(prefix.concat(key));
+    }
+    parent.addListener(prefixedKeys, listener, executor);
+  }
+
+  @Override
+  public void addListener(String keyPrefix, ConfigurationListener listener, Executor executor) {
+    parent.addListener(prefix.concat(keyPrefix), listener, executor);
+  }
+
+  @Override
+  public void removeListener(ConfigurationListener listener) {
+    parent.removeListener(listener);
+  }
+
+  /**
+   * The parent's keys under the prefix, with the prefix removed
+   */
+  private final class StrippedKeys extends AbstractSet<String> {
+    private final Set<String> keys;
+
+    private StrippedKeys(Set<String> keys) {
+      this.keys = keys;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return key instanceof String && keys.contains(prefix.concat((String) key));
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      final Iterator<String> iterator = keys.iterator();
+      return new Iterator<String>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public String next() {
+          return iterator.next().substring(prefix.length());
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return keys.size();
+    }
+  }
+
+  private static final class Binding {
+    private final PropertyStore store;
+    private final PropertyStore prefixed;
+
+    private Binding(PropertyStore store, PropertyStore prefixed) {
+      this.store = store;
+      this.prefixed = prefixed;
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.guice;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.theclearproject.clear.BooleanHandle;
+import org.theclearproject.clear.Clear;
+import org.theclearproject.clear.ClearValue;
+import org.theclearproject.clear.Configuration;
+import org.theclearproject.clear.DoubleHandle;
+import org.theclearproject.clear.FloatHandle;
+import org.theclearproject.clear.IntHandle;
+import org.theclearproject.clear.LongHandle;
+import org.theclearproject.clear.ShortHandle;
+import org.theclearproject.clear.StringHandle;
+import org.theclearproject.clear.property.ClearProperty;
+import org.theclearproject.clear.property.PropertyValue;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.ImplementedBy;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.InjectionRequest;
+import com.google.inject.spi.PrivateElements;
+import com.google.inject.spi.StaticInjectionRequest;
+
+/**
+ * Binds the properties of a {@link Clear} for injection with {@link ClearValue}:
+ *
+ * <pre>
+ * &#64;Inject
+ * public ConnectionPool(&#64;ClearValue("db.pool.size") int size, &#64;ClearValue("db.url") Provider&lt;String&gt; url)
+ * </pre>
+ *
+ * The module installs the application's modules and binds only the properties their injection points ask for, as
+ * the type each asks for: String, Integer, Long, Short, Double, Float, or Boolean for "true" or "false".  The
+ * injection points are found by following the bindings of the modules, and the classes those depend on, so a
+ * class only created just in time needs a binding, e.g. <code>bind(ConnectionPool.class)</code>, for its
+ * properties to be found.  An injection point with a missing key or a value that doesn't convert to its type
+ * fails injector creation with the key, value and type, instead of the first read.
+ *
+ * Bindings read through handles, which resolve the property to its slot once.  Injecting the value itself reads
+ * the current value once, while injecting a {@link Provider} of it reads the value current at each
+ * <code>get()</code>, so a provider sees reloads without a key lookup per call.  A value that stops converting to
+ * its type after a reload fails the <code>get()</code>.
+ *
+ * Clear and {@link Configuration} are bound to the instance as well.
+ *
+ * @author jhumphrey
+ */
+public class ClearModule extends AbstractModule {
+
+  private final Clear clear;
+  private final Module[] modules;
+
+  /**
+   * @param clear the properties to bind
+   * @param modules the application's modules, installed by this one
+   */
+  public ClearModule(Clear clear, Module... modules) {
+    this.clear = clear;
+    this.modules = modules.clone();
+  }
+
+  @Override
+  protected void configure() {
+    bind(Clear.class).toInstance(clear);
+    bind(Configuration.class).toInstance(clear);
+
+    List<Element> elements = Elements.getElements(modules);
+    install(Elements.getModule(elements));
+
+    Set<Key<?>> values = new LinkedHashSet<Key<?>>();
+    collect(elements, new HashSet<TypeLiteral<?>>(), values);
+    for (Key<?> key : values) {
+      bindValue(key, (ClearValue) key.getAnnotation());
+    }
+  }
+
+  /**
+   * Collects the {@link ClearValue} keys of the injection points reachable from the elements
+   *
+   * @param elements the elements
+   * @param scanned the types already scanned
+   * @param values the keys
+   */
+  private void collect(List<Element> elements, Set<TypeLiteral<?>> scanned, Set<Key<?>> values) {
+    for (Element element : elements) {
+      if (element instanceof PrivateElements) {
+        collect(((PrivateElements) element).getElements(), scanned, values);
+      } else if (element instanceof InjectionRequest) {
+        collect(((InjectionRequest<?>) element).getInjectionPoints(), scanned, values);
+      } else if (element instanceof StaticInjectionRequest) {
+        collect(((StaticInjectionRequest) element).getInjectionPoints(), scanned, values);
+      }
+
+      if (element instanceof com.google.inject.Binding) {
+        collect(((com.google.inject.Binding<?>) element).getKey(), scanned, values);
+      }
+      if (element instanceof HasDependencies) {
+        for (Dependency<?> dependency : ((HasDependencies) element).getDependencies()) {
+          collect(dependency.getKey(), scanned, values);
+        }
+      }
+    }
+  }
+
+  private void collect(Set<InjectionPoint> injectionPoints, Set<TypeLiteral<?>> scanned, Set<Key<?>> values) {
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      for (Dependency<?> dependency : injectionPoint.getDependencies()) {
+        collect(dependency.getKey(), scanned, values);
+      }
+    }
+  }
+
+  /**
+   * Collects the key if it's a {@link ClearValue}, and otherwise the keys of the injection points of its type
+   *
+   * @param key the key
+   * @param scanned the types already scanned
+   * @param values the keys
+   */
+  private void collect(Key<?> key, Set<TypeLiteral<?>> scanned, Set<Key<?>> values) {
+    TypeLiteral<?> type = key.getTypeLiteral();
+    Class<?> rawType = type.getRawType();
+    if ((rawType == Provider.class || rawType == javax.inject.Provider.class) &&
+      type.getType() instanceof ParameterizedType) {
+      Type provided = ((ParameterizedType) type.getType()).getActualTypeArguments()[0];
+      key = key.getAnnotation() == null ? Key.get(provided) : Key.get(provided, key.getAnnotation());
+      type = key.getTypeLiteral();
+      rawType = type.getRawType();
+    }
+
+    if (key.getAnnotation() instanceof ClearValue) {
+      values.add(key);
+      return;
+    }
+
+    if (!scanned.add(type) || rawType.isPrimitive() || rawType.getName().startsWith("java.")) {
+      return;
+    }
+
+    ImplementedBy implementedBy = rawType.getAnnotation(ImplementedBy.class);
+    if (implementedBy != null) {
+      collect(Key.get(implementedBy.value()), scanned, values);
+    }
+    ProvidedBy providedBy = rawType.getAnnotation(ProvidedBy.class);
+    if (providedBy != null) {
+      collect(Key.get(providedBy.value()), scanned, values);
+    }
+
+    // types Guice can't construct or inject fail injector creation on their own
+    Set<InjectionPoint> injectionPoints = new LinkedHashSet<InjectionPoint>();
+    try {
+      injectionPoints.add(InjectionPoint.forConstructorOf(type));
+    } catch (ConfigurationException e) {
+      // no-op
+    }
+    try {
+      injectionPoints.addAll(InjectionPoint.forInstanceMethodsAndFields(type));
+    } catch (ConfigurationException e) {
+      // no-op
+    }
+    collect(injectionPoints, scanned, values);
+  }
+
+  /**
+   * Binds the key to a provider reading its property, or reports why it can't be
+   *
+   * @param key the key of the injection points
+   * @param annotation the annotation of the key
+   */
+  @SuppressWarnings("unchecked")
+  private void bindValue(Key<?> key, ClearValue annotation) {
+    String name = annotation.value();
+    Class<?> type = key.getTypeLiteral().getRawType();
+    ClearProperty property = clear.getProperties().get(name);
+    if (property == null) {
+      addError("No value exists for key '%s' injected as %s", name, type.getName());
+      return;
+    }
+
+    String value = property.getValue();
+    PropertyValue propertyValue = new PropertyValue(value);
+    Provider<?> provider;
+    if (type == String.class) {
+      final StringHandle handle = clear.stringHandle(name);
+      provider = new Provider<String>() {
+        @Override
+        public String get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Integer.class && propertyValue.isInt()) {
+      final IntHandle handle = clear.intHandle(name);
+      provider = new Provider<Integer>() {
+        @Override
+        public Integer get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Long.class && propertyValue.isLong()) {
+      final LongHandle handle = clear.longHandle(name);
+      provider = new Provider<Long>() {
+        @Override
+        public Long get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Short.class && propertyValue.isShort()) {
+      final ShortHandle handle = clear.shortHandle(name);
+      provider = new Provider<Short>() {
+        @Override
+        public Short get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Double.class && propertyValue.isDouble()) {
+      final DoubleHandle handle = clear.doubleHandle(name);
+      provider = new Provider<Double>() {
+        @Override
+        public Double get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Float.class && propertyValue.isFloat()) {
+      final FloatHandle handle = clear.floatHandle(name);
+      provider = new Provider<Float>() {
+        @Override
+        public Float get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Boolean.class && ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value))) {
+      final BooleanHandle handle = clear.booleanHandle(name);
+      provider = new Provider<Boolean>() {
+        @Override
+        public Boolean get() {
+          return handle.get();
+        }
+      };
+    } else if (type == Integer.class || type == Long.class || type == Short.class || type == Double.class ||
+      type == Float.class || type == Boolean.class) {
+      addError("Value '%s' for key '%s' can't be converted to %s", value, name, type.getName());
+      return;
+    } else {
+      addError("Key '%s' is injected as %s, which CLEAR values can't be converted to", name, type.getName());
+      return;
+    }
+
+    bind((Key<Object>) key).toProvider((Provider<Object>) provider);
+  }
+}
@@ -16,9 +16,14 @@
 
 package org.theclearproject.clear.init;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 import org.theclearproject.clear.ClearContext;
+import org.theclearproject.clear.ClearException;
 
 /**
  * DSL-like interface used to initialize the CLEAR system.
@@ -31,6 +36,9 @@ public abstract class AbstractInitializer implements Initializer {
 
   private ClearContext clearContext;
 
+  // bundles handed out by fileResourceBundle, kept so unchanged files aren't re-parsed on reload
+  private final Map<File, FileResourceBundle> fileResourceBundles = new HashMap<File, FileResourceBundle>();
+
   /**
    * Initializes with one to many property files
    *
@@ -44,6 +52,31 @@ public abstract class AbstractInitializer implements Initializer {
     return new ResourceBundleBuilder(clearContext, resourceBundles);
   }
 
+  /**
+   * Returns a resource bundle backed by a properties file on disk.
+   *
+   * The same bundle is returned for as long as the file contents don't change, so calling this from
+   * {@link #initClear()} only re-parses files that changed since the last initialization.  Bundles returned
+   * by this method are the ones watched by {@link org.theclearproject.clear.ResourceBundleWatcher}
+   *
+   * @param file the properties file
+   * @return the resource bundle
+   * @throws ClearException thrown if the file can't be read
+   */
+  protected ResourceBundle fileResourceBundle(File file) throws ClearException {
+    File absoluteFile = file.getAbsoluteFile();
+    try {
+      synchronized (fileResourceBundles) {
+        FileResourceBundle bundle = fileResourceBundles.get(absoluteFile);
+        bundle = (bundle == null) ? FileResourceBundle.load(absoluteFile) : bundle.refresh();
+        fileResourceBundles.put(absoluteFile, bundle);
+        return bundle;
+      }
+    } catch (IOException e) {
+      throw new ClearException("Unable to read properties file '" + absoluteFile + "'", e);
+    }
+  }
+
   public ClearContext getClearContext() {
     return clearContext;
   }
@@ -17,8 +17,10 @@
 package org.theclearproject.clear.init;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
@@ -27,15 +29,17 @@ import org.theclearproject.clear.ClearException;
 /**
  * <p>Abstract initializer that initializes CLEAR using a lookUp path defined within the JNDI tree</p>
  *
- * <p>The lookUp path must conform to the following format:</p>
+ * <p>The lookUp path is one or more lookUps separated by a decimal delimiter, from the broadest to the most
+ * specific, and may be of any depth:</p>
  *
- * <p>X[.Y[.Z]</p>]
+ * <p>X[.Y[.Z[...]]]</p>
  *
  * <p>Examples:</p>
  *    <ul>
  *      <li>- X</li>
  *      <li>- X.Y</li>
  *      <li>- X.Y.Z</li>
+ *      <li>- region.environment.cluster.rack.host</li>
  *    </ul>
  *
  * @author jhumphrey
@@ -64,53 +68,61 @@ public abstract class AbstractJndiInitializer extends AbstractInitializer {
   }
 
   /**
-   * Helper method to extract the lookUps from the lookup path.  Each lookUp must be followed
-   * by a decimal delimiter and only 3 lookUps are supported.
+   * Helper method to extract the lookUps from the lookup path, in precedence order.  Each lookUp must be followed
+   * by a decimal delimiter.  Paths may be of any depth.
    *
-   * Format: X[.Y[.Z]
-   *
-   * Examples:
-   *  - X
-   *  - X.Y
-   *  - X.Y.Z
+   * Format: X[.Y[.Z[...]]]
    *
    *  The intent of this path is to model an enterprise system.  For instance:
    *
-   *  environment.cluster.server:
+   *  environment.cluster.server
+   *
+   * The path expands level by level, starting from the full path and moving to its parent.  Each level contributes
+   * itself followed by its shorter suffixes, so for X.Y.Z the order is:
+   *
+   *  X.Y.Z, Y.Z, Z, X.Y, Y, X
+   *
+   * A path of n lookUps expands to at most n(n+1)/2 lookUps.  A lookUp that shows up more than once, as happens
+   * when a path repeats a name, is only listed at its first position.
    *
    * @param lookupPath the lookup path
-   * @return a list of lookUps
+   * @return a list of lookUps.  Empty for a null or empty path
    */
   List<String> extractLookUps(String lookupPath) {
 
     List<String> lookupPaths = new ArrayList<String>();
 
-    if (lookupPath != null) {
-
-      lookupPaths.add(lookupPath);
-
-      String[] lookups = lookupPath.split("\\.");
-
-      // todo: This is nasty.  Create a recursive algorithm to provide for infinitely nested paths
-      if (lookups.length == 1) {
-        return lookupPaths;
-      } else if (lookups.length == 2) {
-        lookupPaths.add(lookups[1]);
-        lookupPaths.add(lookups[0]);
-      } else if (lookups.length == 3) {
-        lookupPaths.add(lookups[1] + "." + lookups[2]);
-        lookupPaths.add(lookups[2]);
-        lookupPaths.add(lookups[0] + "." + lookups[1]);
-        lookupPaths.add(lookups[1]);
-        lookupPaths.add(lookups[0]);
-      } else {
-        throw new ClearException("JNDI lookUp path invalid.  Path must conform to the following format: X[\\.Y[\\.Z]]\n\tEx:\n\t\t- X\n\t\t- X.Y\n\t\t- X.Y.Z");
+    if (lookupPath != null && !lookupPath.isEmpty()) {
+
+      String[] lookups = lookupPath.split("\\.", -1);
+      for (String lookup : lookups) {
+        if (lookup.isEmpty()) {
+          throw new ClearException("JNDI lookUp path '" + lookupPath + "' invalid.  Path must conform to the following format: X[\\.Y[\\.Z[...]]]\n\tEx:\n\t\t- X\n\t\t- X.Y\n\t\t- X.Y.Z");
+        }
+      }
+
+      Set<String> seen = new HashSet<String>();
+      for (int end = lookups.length; end > 0; end--) {
+        for (int begin = 0; begin < end; begin++) {
+          String lookup = join(lookups, begin, end);
+          if (seen.add(lookup)) {
+            lookupPaths.add(lookup);
+          }
+        }
       }
     }
 
     return lookupPaths;
   }
 
+  private static String join(String[] lookups, int begin, int end) {
+    StringBuilder builder = new StringBuilder(lookups[begin]);
+    for (int i = begin + 1; i < end; i++) {
+      builder.append('.').append(lookups[i]);
+    }
+    return builder.toString();
+  }
+
   /**
    * Helper method to resolve the lookup path from JNDI
    *
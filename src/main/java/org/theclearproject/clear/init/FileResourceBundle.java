@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.init;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.theclearproject.clear.property.PropertiesParser;
+import org.theclearproject.clear.property.PropertyHandler;
+import org.theclearproject.clear.property.PropertySource;
+import org.theclearproject.clear.property.StringPool;
+
+/**
+ * A resource bundle backed by a properties file on disk.
+ *
+ * The bundle remembers the checksum of the file contents it was read from, so an unchanged file is never parsed
+ * twice.  See {@link #refresh()}.
+ *
+ * The file is parsed with {@link PropertiesParser} as ISO-8859-1, like {@link java.util.Properties}.  The bundle
+ * keeps the contents read by {@link #load(File)} or {@link #refresh()}, one byte per character, and every read
+ * is served from them rather than from the file, so a bundle always has the contents its checksum was taken from
+ * even after the file changed.  As a {@link PropertySource} the bundle streams its pairs from those contents
+ * straight to CLEAR.  A map is only built if the bundle is used through the ResourceBundle API.
+ *
+ * @author jhumphrey
+ */
+public class FileResourceBundle extends ResourceBundle implements PropertySource {
+
+  private final File file;
+  // only the file metadata is updated when the file is touched without changing its contents
+  private volatile long lastModified;
+  private volatile long length;
+  private final long checksum;
+  // the contents read when the bundle was created.  Never consumed, reads parse a duplicate
+  private final ByteBuffer contents;
+  // only built for the ResourceBundle API
+  private volatile Map<String, String> properties;
+
+  private FileResourceBundle(File file, long lastModified, long length, long checksum, ByteBuffer contents) {
+    this.file = file;
+    this.lastModified = lastModified;
+    this.length = length;
+    this.checksum = checksum;
+    this.contents = contents;
+  }
+
+  /**
+   * Parses the properties file
+   *
+   * @param file the properties file
+   * @return the bundle
+   * @throws IOException thrown if the file can't be read
+   */
+  public static FileResourceBundle load(File file) throws IOException {
+    File absoluteFile = file.getAbsoluteFile();
+    long lastModified = absoluteFile.lastModified();
+    ByteBuffer buffer = PropertiesParser.read(absoluteFile);
+    return new FileResourceBundle(absoluteFile, lastModified, buffer.remaining(), PropertiesParser.checksum(buffer), buffer);
+  }
+
+  /**
+   * Returns a bundle reflecting the current contents of the file.
+   *
+   * The file is read and checksummed, and a new bundle is only created if the checksum changed.  The modification
+   * time and length aren't trusted to rule a change out, since a file can be rewritten with the same length within
+   * the resolution of its modification time.  If the file is unchanged, or was merely touched, this bundle is
+   * returned, so callers can keep keying cached work off the bundle instance.
+   *
+   * @return this bundle or a new one if the file changed
+   * @throws IOException thrown if the file can't be read
+   */
+  public FileResourceBundle refresh() throws IOException {
+    long currentLastModified = file.lastModified();
+    ByteBuffer buffer = PropertiesParser.read(file);
+    long currentLength = buffer.remaining();
+    long currentChecksum = PropertiesParser.checksum(buffer);
+    if (currentChecksum == checksum) {
+      lastModified = currentLastModified;
+      length = currentLength;
+      return this;
+    }
+
+    return new FileResourceBundle(file, currentLastModified, currentLength, currentChecksum, buffer);
+  }
+
+  /**
+   * Returns the file backing this bundle
+   *
+   * @return the absolute file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the modification time of the file when it was last checked
+   *
+   * @return the modification time in milliseconds
+   */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Returns the length of the file when it was last checked
+   *
+   * @return the length in bytes
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the checksum of the file contents this bundle was parsed from
+   *
+   * @return the CRC32 checksum
+   */
+  @Override
+  public long getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * Parses the contents this bundle was read from and passes every pair to the handler in file order
+   *
+   * @param handler the handler
+   */
+  @Override
+  public void readProperties(PropertyHandler handler) {
+    PropertiesParser.parse(contents.duplicate(), handler);
+  }
+
+  @Override
+  protected Object handleGetObject(String key) {
+    return properties().get(key);
+  }
+
+  @Override
+  public Enumeration<String> getKeys() {
+    // no parent is ever set, so the keys of this bundle are all the keys
+    return Collections.enumeration(properties().keySet());
+  }
+
+  @Override
+  protected Set<String> handleKeySet() {
+    return properties().keySet();
+  }
+
+  private Map<String, String> properties() {
+    Map<String, String> map = properties;
+    if (map == null) {
+      final Map<String, String> parsed = new HashMap<String, String>();
+      // values like true or a port number repeat throughout a file
+      final StringPool values = new StringPool();
+      readProperties(new PropertyHandler() {
+        @Override
+        public void property(String key, String value) {
+          parsed.put(key, values.canonical(value));
+        }
+      });
+      map = Collections.unmodifiableMap(parsed);
+      properties = map;
+    }
+    return map;
+  }
+}
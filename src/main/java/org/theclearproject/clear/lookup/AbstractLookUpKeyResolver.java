@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for resolvers that can resolve a batch of keys.
+ *
+ * CLEAR resolves the keys of a bundle through {@link #resolveAll(Iterable)} when the resolver extends this class,
+ * and one key at a time through {@link LookUpKeyResolver#resolve(String)} otherwise, so implementing the
+ * interface directly keeps working.  The default implementation resolves keys one at a time; subclasses override
+ * it when a batch lets them share work across keys.
+ *
+ * @author jhumphrey
+ */
+public abstract class AbstractLookUpKeyResolver implements LookUpKeyResolver {
+
+  /**
+   * Resolves a batch of lookUp-key pairs
+   *
+   * @param lookUpKeys the lookUpKeys containing the lookups
+   * @return the resolved lookUp keys, in iteration order
+   */
+  public List<LookUpKey> resolveAll(Iterable<String> lookUpKeys) {
+    List<LookUpKey> resolved = new ArrayList<LookUpKey>();
+    for (String lookUpKey : lookUpKeys) {
+      resolved.add(resolve(lookUpKey));
+    }
+
+    return resolved;
+  }
+}
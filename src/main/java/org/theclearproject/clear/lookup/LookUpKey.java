@@ -17,22 +17,46 @@
 package org.theclearproject.clear.lookup;
 
 /**
+ * The lookUp is held as its {@link LookUpRegistry} id, so keys sharing a lookUp share its name as well.
+ *
  * @author jhumphrey
  */
 public class LookUpKey {
 
   private String lookUpKey;
-  private String lookUp;
+  private int lookUpId;
   private String key;
 
   public LookUpKey(String lookUp, String key, String lookUpKey) {
-    this.lookUp = lookUp;
+    this.lookUpId = LookUpRegistry.idOf(lookUp);
+    this.key = key;
+    this.lookUpKey = lookUpKey;
+  }
+
+  /**
+   * For resolvers that already hold the registry id of the lookUp
+   *
+   * @param lookUpId the {@link LookUpRegistry} id of the lookUp
+   * @param key the key
+   * @param lookUpKey the lookUp key
+   */
+  LookUpKey(int lookUpId, String key, String lookUpKey) {
+    this.lookUpId = lookUpId;
     this.key = key;
     this.lookUpKey = lookUpKey;
   }
 
   public String getLookUp() {
-    return lookUp;
+    return LookUpRegistry.nameOf(lookUpId);
+  }
+
+  /**
+   * Returns the {@link LookUpRegistry} id of the lookUp
+   *
+   * @return the id, or {@link LookUpRegistry#NONE} if there is no lookUp
+   */
+  public int getLookUpId() {
+    return lookUpId;
   }
 
   public String getKey() {
@@ -45,6 +69,7 @@ public class LookUpKey {
 
   @Override
   public String toString() {
+    String lookUp = getLookUp();
     if (lookUp.isEmpty()) {
       return key;
     } else {
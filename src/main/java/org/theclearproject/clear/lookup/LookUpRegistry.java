@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.lookup;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns every lookUp name a small integer id for the life of the JVM.
+ *
+ * A configuration has a handful of lookUps shared by every key, so {@link LookUpKey} stores the id rather than its
+ * own copy of the name, and lookUp comparisons become integer comparisons.  Ids are dense and start at zero, which
+ * lets callers index arrays by id.  Names are never released, so the registry is meant for lookUp names and not
+ * for arbitrary strings.
+ *
+ * @author jhumphrey
+ */
+public final class LookUpRegistry {
+
+  /**
+   * The id of the null lookUp
+   */
+  public static final int NONE = -1;
+
+  private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+  private static volatile String[] names = new String[0];
+
+  private LookUpRegistry() {
+  }
+
+  /**
+   * Returns the id of the lookUp, registering it if needed
+   *
+   * @param lookUp the lookUp name, may be null
+   * @return the id, or {@link #NONE} for null
+   */
+  public static int idOf(String lookUp) {
+    if (lookUp == null) {
+      return NONE;
+    }
+
+    Integer id = ids.get(lookUp);
+    return id != null ? id : register(lookUp);
+  }
+
+  /**
+   * Returns the canonical name of a lookUp id
+   *
+   * @param id the id returned by {@link #idOf(String)}
+   * @return the name, or null for {@link #NONE}
+   */
+  public static String nameOf(int id) {
+    return id == NONE ? null : names[id];
+  }
+
+  /**
+   * Returns the number of registered lookUps.  Every registered id is below this number
+   *
+   * @return the number of lookUps
+   */
+  public static int size() {
+    return names.length;
+  }
+
+  private static synchronized int register(String lookUp) {
+    Integer id = ids.get(lookUp);
+    if (id != null) {
+      return id;
+    }
+
+    String[] grown = Arrays.copyOf(names, names.length + 1);
+    grown[names.length] = lookUp;
+    // publish the name before the id, so any thread that sees the id can read the name
+    names = grown;
+    ids.put(lookUp, grown.length - 1);
+    return grown.length - 1;
+  }
+}
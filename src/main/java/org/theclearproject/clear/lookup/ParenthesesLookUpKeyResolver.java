@@ -16,6 +16,10 @@
 
 package org.theclearproject.clear.lookup;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 /**
@@ -27,9 +31,17 @@ import org.apache.log4j.Logger;
  *
  * The lookUp in the example above would be 'foo'
  *
+ * Keys are scanned by index rather than split with regular expressions.  The scan gives the same answers the
+ * split-based resolver did: the lookUp is the text between the first '(' and the first ')' after it, and the key
+ * is the text after that ')' up to the next '(' or ')'.  Keys with no text after the ')' have no lookUp.
+ *
+ * A batch reuses its scan bounds across keys, and since the keys of a bundle are usually grouped by lookUp, it
+ * matches each key's lookUp against the previous one in place, so a lookUp is only cut out of a key and looked up
+ * in the {@link LookUpRegistry} when it changes.
+ *
  * @author jhumphrey
  */
-public class ParenthesesLookUpKeyResolver implements LookUpKeyResolver {
+public class ParenthesesLookUpKeyResolver extends AbstractLookUpKeyResolver {
 
   private static final Logger logger = Logger.getLogger(ParenthesesLookUpKeyResolver.class);
 
@@ -39,27 +51,113 @@ public class ParenthesesLookUpKeyResolver implements LookUpKeyResolver {
       return null;
     }
 
-    String[] tokens = lookUpKey.split("\\(");
-
-    if (tokens.length == 1) {
+    int[] bounds = new int[3];
+    if (!scan(lookUpKey, bounds)) {
       return new LookUpKey(null, lookUpKey, lookUpKey);
     }
 
-    String token = tokens[1];
+    String lookUp = lookUpKey.substring(bounds[0], bounds[1]);
+    String key = lookUpKey.substring(bounds[1] + 1, bounds[2]);
+    if (logger.isDebugEnabled()) {
+      logger.debug("Resolved lookUpKey '" + lookUpKey + "' to lookUp '" + lookUp + "' and key '" + key + "'");
+    }
 
-    tokens = token.split("\\)");
+    return new LookUpKey(lookUp, key, lookUpKey);
+  }
 
-    if (tokens.length == 1) {
-      return new LookUpKey(null, lookUpKey, lookUpKey);
+  @Override
+  public List<LookUpKey> resolveAll(Iterable<String> lookUpKeys) {
+    List<LookUpKey> resolved = lookUpKeys instanceof Collection ?
+      new ArrayList<LookUpKey>(((Collection<?>) lookUpKeys).size()) : new ArrayList<LookUpKey>();
+    boolean debug = logger.isDebugEnabled();
+    int[] bounds = new int[3];
+    String lastLookUp = null;
+    int lastLookUpId = LookUpRegistry.NONE;
+    for (String lookUpKey : lookUpKeys) {
+      if (lookUpKey == null) {
+        resolved.add(null);
+        continue;
+      }
+      if (!scan(lookUpKey, bounds)) {
+        resolved.add(new LookUpKey(null, lookUpKey, lookUpKey));
+        continue;
+      }
+
+      int lookUpLength = bounds[1] - bounds[0];
+      if (lastLookUp == null || lastLookUp.length() != lookUpLength ||
+        !lookUpKey.regionMatches(bounds[0], lastLookUp, 0, lookUpLength)) {
+        lastLookUpId = LookUpRegistry.idOf(lookUpKey.substring(bounds[0], bounds[1]));
+        lastLookUp = LookUpRegistry.nameOf(lastLookUpId);
+      }
+
+      String key = lookUpKey.substring(bounds[1] + 1, bounds[2]);
+      if (debug) {
+        logger.debug("Resolved lookUpKey '" + lookUpKey + "' to lookUp '" + lastLookUp + "' and key '" + key + "'");
+      }
+      resolved.add(new LookUpKey(lastLookUpId, key, lookUpKey));
     }
 
-    String lookUp = tokens[0];
-    String key = tokens[1];
+    return resolved;
+  }
 
-    if (logger.isDebugEnabled()) {
-      logger.debug("Resolved lookUpKey '" + lookUpKey + "' to lookUp '" + lookUp + "' and key '" + key + "'");
+  /**
+   * Finds the lookUp and key of a lookUp key
+   *
+   * @param lookUpKey the lookUp key
+   * @param bounds receives the start of the lookUp, the index of the ')' that ends it, and the end of the key
+   * @return true if the lookUp key has a lookUp
+   */
+  private static boolean scan(String lookUpKey, int[] bounds) {
+    int length = lookUpKey.length();
+    int open = lookUpKey.indexOf('(');
+    if (open < 0) {
+      return false;
     }
 
-    return new LookUpKey(lookUp, key, lookUpKey);
+    // the lookUp and key can only come from the text between the first '(' and the next one
+    int tokenStart = open + 1;
+    int tokenEnd = lookUpKey.indexOf('(', tokenStart);
+    if (tokenEnd < 0) {
+      tokenEnd = length;
+    }
+
+    int close = -1;
+    for (int i = tokenStart; i < tokenEnd; i++) {
+      if (lookUpKey.charAt(i) == ')') {
+        close = i;
+        break;
+      }
+    }
+
+    if (close < 0) {
+      return false;
+    }
+
+    // the key ends at the next ')'.  Runs of ')' with nothing after them don't count as a key
+    int keyStart = close + 1;
+    int keyEnd = tokenEnd;
+    boolean hasKey = false;
+    for (int i = keyStart; i < tokenEnd; i++) {
+      if (lookUpKey.charAt(i) != ')') {
+        hasKey = true;
+        break;
+      }
+    }
+
+    if (!hasKey) {
+      return false;
+    }
+
+    for (int i = keyStart; i < tokenEnd; i++) {
+      if (lookUpKey.charAt(i) == ')') {
+        keyEnd = i;
+        break;
+      }
+    }
+
+    bounds[0] = tokenStart;
+    bounds[1] = close;
+    bounds[2] = keyEnd;
+    return true;
   }
 }
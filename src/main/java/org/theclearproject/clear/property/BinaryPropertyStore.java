@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.theclearproject.clear.lookup.LookUpKey;
+
+/**
+ * A {@link PropertyStore} served straight out of a binary snapshot written by {@link BinaryPropertyWriter}.
+ *
+ * Opening a snapshot checks every arena reference and index slot against the bounds of the snapshot, so a corrupt
+ * snapshot is rejected up front rather than failing a read later, but decodes no strings.  Keys are located
+ * through the snapshot's own hash index and compared in place, and a value is decoded from the string arena the
+ * first time its slot is read.  The numeric and boolean representations are stored pre-parsed.
+ *
+ * A store without a value cache keeps nothing on the heap and decodes a value on every read.  Its
+ * {@link #bytesAt(int)} and {@link #charsAt(int)} views read the encoded value in place.
+ *
+ * The snapshot records the lookUps and a fingerprint of every bundle the properties were loaded from.  See
+ * {@link #matches(List, List)}.
+ *
+ * Layout, big-endian, with all offsets relative to the start of the snapshot:
+ * <pre>
+ *   header   magic, version, property count, index capacity, lookUp count, source count,
+ *            then the offsets of the sections below and the arena length.  64 bytes
+ *   sources  per bundle: path (arena reference, -1 for bundles without a file), length, last modified,
+ *            checksum of the contents
+ *   lookUps  per lookUp: name (arena reference)
+ *   index    per slot: key hash, entry number or -1
+ *   entries  per property: key, value, lookUpKey and lookUp (arena references), representation flags
+ *            along with whether the value is ASCII, float, long and double representations
+ *   arena    UTF-8 bytes of every distinct string
+ * </pre>
+ * An arena reference is an offset into the arena followed by a byte length, -1 for null.
+ *
+ * @author jhumphrey
+ */
+public final class BinaryPropertyStore implements PropertyStore {
+
+  static final int MAGIC = 0x434C4541;
+  static final int VERSION = 2;
+
+  static final int HEADER_SIZE = 64;
+  static final int SOURCE_SIZE = 32;
+  static final int LOOKUP_SIZE = 8;
+  static final int INDEX_SIZE = 8;
+  static final int ENTRY_SIZE = 56;
+
+  /**
+   * Entry flag set when every byte of the value is ASCII, kept clear of the {@link PropertyValue} flags
+   */
+  static final int ASCII_VALUE = 1 << 16;
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int capacity;
+  private final int shift;
+  private final int lookUpCount;
+  private final int sourceCount;
+  private final int sourcesOffset;
+  private final int lookUpsOffset;
+  private final int indexOffset;
+  private final int entriesOffset;
+  private final int arenaOffset;
+
+  // values decoded so far, or null when values aren't cached.  PropertyValue is immutable, so racing readers at
+  // worst decode a value twice
+  private final PropertyValue[] values;
+
+  /**
+   * Opens a store that caches values once decoded
+   *
+   * @param buffer the snapshot, from position zero to the limit
+   * @throws IOException thrown if the buffer doesn't hold a snapshot this version can read
+   */
+  public BinaryPropertyStore(ByteBuffer buffer) throws IOException {
+    this(buffer, true);
+  }
+
+  /**
+   * @param buffer the snapshot, from position zero to the limit
+   * @param cacheValues whether to keep values on the heap once decoded
+   * @throws IOException thrown if the buffer doesn't hold a snapshot this version can read
+   */
+  public BinaryPropertyStore(ByteBuffer buffer, boolean cacheValues) throws IOException {
+    this.buffer = buffer;
+
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a CLEAR snapshot");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported CLEAR snapshot version " + version);
+    }
+
+    count = buffer.getInt(8);
+    capacity = buffer.getInt(12);
+    lookUpCount = buffer.getInt(16);
+    sourceCount = buffer.getInt(20);
+    sourcesOffset = buffer.getInt(24);
+    lookUpsOffset = buffer.getInt(28);
+    indexOffset = buffer.getInt(32);
+    entriesOffset = buffer.getInt(36);
+    arenaOffset = buffer.getInt(40);
+    int arenaLength = buffer.getInt(44);
+
+    if (capacity < 2 || Integer.bitCount(capacity) != 1 || count < 0 || count >= capacity || lookUpCount < 0 ||
+      sourceCount < 0 || arenaLength < 0 || (long) arenaOffset + arenaLength > buffer.limit() ||
+      (long) entriesOffset + (long) count * ENTRY_SIZE > arenaOffset ||
+      (long) indexOffset + (long) capacity * INDEX_SIZE > entriesOffset ||
+      (long) lookUpsOffset + (long) lookUpCount * LOOKUP_SIZE > indexOffset ||
+      (long) sourcesOffset + (long) sourceCount * SOURCE_SIZE > lookUpsOffset || sourcesOffset < HEADER_SIZE) {
+      throw new IOException("Corrupt CLEAR snapshot");
+    }
+
+    shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    values = cacheValues ? new PropertyValue[count] : null;
+
+    validate(arenaLength);
+  }
+
+  private BinaryPropertyStore(BinaryPropertyStore store, boolean cacheValues) {
+    buffer = store.buffer;
+    count = store.count;
+    capacity = store.capacity;
+    shift = store.shift;
+    lookUpCount = store.lookUpCount;
+    sourceCount = store.sourceCount;
+    sourcesOffset = store.sourcesOffset;
+    lookUpsOffset = store.lookUpsOffset;
+    indexOffset = store.indexOffset;
+    entriesOffset = store.entriesOffset;
+    arenaOffset = store.arenaOffset;
+    values = cacheValues ? new PropertyValue[count] : null;
+  }
+
+  /**
+   * Memory-maps a snapshot file.  The mapping stays valid after this method returns
+   *
+   * @param file the snapshot file
+   * @return the store
+   * @throws IOException thrown if the file can't be read or isn't a snapshot this version can read
+   */
+  public static BinaryPropertyStore open(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      return new BinaryPropertyStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Slots are entry numbers, so every slot is occupied
+   */
+  @Override
+  public int indexOf(String key) {
+    if (key == null) {
+      return -1;
+    }
+
+    int hash = key.hashCode();
+    int slot = (hash * 0x9E3779B9) >>> shift;
+    int mask = capacity - 1;
+
+    int entry;
+    while ((entry = buffer.getInt(indexOffset + slot * INDEX_SIZE + 4)) >= 0) {
+      if (buffer.getInt(indexOffset + slot * INDEX_SIZE) == hash && keyEquals(entry, key)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  @Override
+  public PropertyValue get(String key) {
+    int slot = indexOf(key);
+    return slot < 0 ? null : valueAt(slot);
+  }
+
+  @Override
+  public PropertyValue valueAt(int slot) {
+    PropertyValue value = values == null ? null : values[slot];
+    if (value == null) {
+      int entry = entry(slot);
+      value = new PropertyValue(string(entry + 8), buffer.getInt(entry + 32) & ~ASCII_VALUE,
+        buffer.getLong(entry + 40), buffer.getDouble(entry + 48), buffer.getFloat(entry + 36));
+      if (values != null) {
+        values[slot] = value;
+      }
+    }
+
+    return value;
+  }
+
+  @Override
+  public ByteBuffer bytesAt(int slot) {
+    int entry = entry(slot);
+    int start = arenaOffset + buffer.getInt(entry + 8);
+    ByteBuffer view = buffer.duplicate();
+    view.limit(start + buffer.getInt(entry + 12));
+    view.position(start);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  @Override
+  public CharSequence charsAt(int slot) {
+    int entry = entry(slot);
+    if ((buffer.getInt(entry + 32) & ASCII_VALUE) != 0) {
+      return new AsciiCharSequence(buffer, arenaOffset + buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+    }
+
+    return string(entry + 8);
+  }
+
+  @Override
+  public String keyAt(int slot) {
+    return string(entry(slot));
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public int capacity() {
+    return count;
+  }
+
+  /**
+   * Returns a store over the same snapshot that doesn't cache values, so nothing but the store itself is kept
+   * on the heap
+   *
+   * @return the store
+   */
+  public BinaryPropertyStore uncached() {
+    return new BinaryPropertyStore(this, false);
+  }
+
+  /**
+   * Returns the lookUps the snapshot was compiled with
+   *
+   * @return the lookUps
+   */
+  public List<String> getLookUps() {
+    List<String> lookUps = new ArrayList<String>(lookUpCount);
+    for (int i = 0; i < lookUpCount; i++) {
+      lookUps.add(string(lookUpsOffset + i * LOOKUP_SIZE));
+    }
+
+    return lookUps;
+  }
+
+  /**
+   * Returns the files the snapshot was compiled from
+   *
+   * @return the sources
+   */
+  public List<Source> getSources() {
+    List<Source> sources = new ArrayList<Source>(sourceCount);
+    for (int i = 0; i < sourceCount; i++) {
+      int source = sourcesOffset + i * SOURCE_SIZE;
+      String path = string(source);
+      sources.add(new Source(path == null ? null : new File(path), buffer.getLong(source + 8),
+        buffer.getLong(source + 16), buffer.getLong(source + 24)));
+    }
+
+    return sources;
+  }
+
+  /**
+   * Checks that the snapshot was compiled for the same lookUps, in the same order, from the same bundles with the
+   * same contents.  Bundles are compared in order, by file and checksum
+   *
+   * @param lookUps the lookUps the properties would be filtered with now
+   * @param sources the fingerprints of the bundles the properties would be loaded from now
+   * @return true if the snapshot holds the properties a load would produce
+   */
+  public boolean matches(List<String> lookUps, List<Source> sources) {
+    if (!getLookUps().equals(lookUps)) {
+      return false;
+    }
+
+    List<Source> compiled = getSources();
+    if (compiled.size() != sources.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < compiled.size(); i++) {
+      Source compiledSource = compiled.get(i);
+      Source source = sources.get(i);
+      File file = compiledSource.getFile();
+      if (compiledSource.getChecksum() != source.getChecksum() ||
+        (file == null ? source.getFile() != null : !file.equals(source.getFile()))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Decodes every property, in the order they were written
+   *
+   * @return the properties by key
+   */
+  public Map<String, ClearProperty> properties() {
+    Map<String, ClearProperty> properties = new LinkedHashMap<String, ClearProperty>();
+    for (int slot = 0; slot < count; slot++) {
+      int entry = entry(slot);
+      String key = string(entry);
+      LookUpKey lookUpKey = new LookUpKey(string(entry + 24), key, string(entry + 16));
+      properties.put(key, new ClearProperty(lookUpKey, valueAt(slot).getValue()));
+    }
+
+    return Collections.unmodifiableMap(properties);
+  }
+
+  private int entry(int slot) {
+    return entriesOffset + slot * ENTRY_SIZE;
+  }
+
+  /**
+   * Checks every arena reference and index slot, so reads never go past the snapshot and lookups always end
+   *
+   * @param arenaLength the length of the arena
+   * @throws IOException thrown if any of them is out of bounds
+   */
+  private void validate(int arenaLength) throws IOException {
+    for (int i = 0; i < sourceCount; i++) {
+      checkReference(sourcesOffset + i * SOURCE_SIZE, arenaLength, true);
+    }
+    for (int i = 0; i < lookUpCount; i++) {
+      checkReference(lookUpsOffset + i * LOOKUP_SIZE, arenaLength, false);
+    }
+
+    // a full index would send a lookup of a missing key around it forever
+    int occupied = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      int entryNumber = buffer.getInt(indexOffset + slot * INDEX_SIZE + 4);
+      if (entryNumber < -1 || entryNumber >= count) {
+        throw new IOException("Corrupt CLEAR snapshot");
+      }
+      if (entryNumber >= 0) {
+        occupied++;
+      }
+    }
+    if (occupied != count) {
+      throw new IOException("Corrupt CLEAR snapshot");
+    }
+
+    for (int slot = 0; slot < count; slot++) {
+      int entry = entry(slot);
+      checkReference(entry, arenaLength, false);
+      checkReference(entry + 8, arenaLength, false);
+      checkReference(entry + 16, arenaLength, false);
+      checkReference(entry + 24, arenaLength, true);
+    }
+  }
+
+  private void checkReference(int reference, int arenaLength, boolean nullable) throws IOException {
+    int offset = buffer.getInt(reference);
+    int length = buffer.getInt(reference + 4);
+    if (nullable && offset == -1 && length == -1) {
+      return;
+    }
+
+    if (offset < 0 || length < 0 || (long) offset + length > arenaLength) {
+      throw new IOException("Corrupt CLEAR snapshot");
+    }
+  }
+
+  /**
+   * Decodes the arena string referenced at the position
+   *
+   * @param reference the position of the offset and length pair
+   * @return the string, or null
+   */
+  private String string(int reference) {
+    int offset = buffer.getInt(reference);
+    if (offset < 0) {
+      return null;
+    }
+
+    int length = buffer.getInt(reference + 4);
+    byte[] bytes = new byte[length];
+    int start = arenaOffset + offset;
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Compares the key of an entry with a string without decoding the key, as long as the string is ASCII
+   */
+  private boolean keyEquals(int slot, String key) {
+    int entry = entry(slot);
+    int start = arenaOffset + buffer.getInt(entry);
+    int length = buffer.getInt(entry + 4);
+    int keyLength = key.length();
+    if (length < keyLength) {
+      // UTF-8 never takes fewer bytes than chars
+      return false;
+    }
+
+    for (int i = 0; i < keyLength; i++) {
+      char c = key.charAt(i);
+      if (c >= 0x80) {
+        return key.equals(string(entry));
+      }
+      if (buffer.get(start + i) != c) {
+        return false;
+      }
+    }
+
+    return length == keyLength;
+  }
+
+  /**
+   * A bundle a snapshot was compiled from.  A bundle backed by a file is identified by the file, its length,
+   * modification time and checksum.  Any other bundle, such as one on the classpath, has no file and is identified
+   * by a checksum of its key-value pairs
+   */
+  public static final class Source {
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    private final long checksum;
+
+    /**
+     * @param file the file, or null for a bundle without one
+     * @param length the length of the file, or 0
+     * @param lastModified the modification time of the file, or 0
+     * @param checksum the checksum of the contents
+     */
+    public Source(File file, long length, long lastModified, long checksum) {
+      this.file = file;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.checksum = checksum;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public long getLength() {
+      return length;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public long getChecksum() {
+      return checksum;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes properties in the binary snapshot format read by {@link BinaryPropertyStore}.
+ *
+ * Equal strings are written to the arena once, and every value is parsed once here so the snapshot can carry
+ * its typed representations.
+ *
+ * @author jhumphrey
+ */
+public final class BinaryPropertyWriter {
+
+  private BinaryPropertyWriter() {
+  }
+
+  /**
+   * Encodes the properties into a heap buffer
+   *
+   * @param properties the properties.  If two properties share a key, the last one wins
+   * @param lookUps the lookUps the properties were filtered with
+   * @param sources the bundles the properties were loaded from
+   * @return the snapshot, positioned at zero
+   */
+  public static ByteBuffer encode(Collection<ClearProperty> properties, List<String> lookUps,
+                                  List<BinaryPropertyStore.Source> sources) {
+    return encode(properties, lookUps, sources, false);
+  }
+
+  /**
+   * Encodes the properties
+   *
+   * @param properties the properties.  If two properties share a key, the last one wins
+   * @param lookUps the lookUps the properties were filtered with
+   * @param sources the bundles the properties were loaded from
+   * @param direct whether to encode into a direct buffer, outside of the heap
+   * @return the snapshot, positioned at zero
+   */
+  public static ByteBuffer encode(Collection<ClearProperty> properties, List<String> lookUps,
+                                  List<BinaryPropertyStore.Source> sources, boolean direct) {
+    Map<String, ClearProperty> byKey = new LinkedHashMap<String, ClearProperty>();
+    for (ClearProperty property : properties) {
+      byKey.put(property.getKey(), property);
+    }
+
+    int count = byKey.size();
+    int capacity = 2;
+    while (capacity <= count * 2) {
+      capacity <<= 1;
+    }
+    int shift = 32 - Integer.numberOfTrailingZeros(capacity);
+
+    int sourcesOffset = BinaryPropertyStore.HEADER_SIZE;
+    int lookUpsOffset = sourcesOffset + sources.size() * BinaryPropertyStore.SOURCE_SIZE;
+    int indexOffset = lookUpsOffset + lookUps.size() * BinaryPropertyStore.LOOKUP_SIZE;
+    int entriesOffset = indexOffset + capacity * BinaryPropertyStore.INDEX_SIZE;
+    int arenaOffset = entriesOffset + count * BinaryPropertyStore.ENTRY_SIZE;
+
+    Arena arena = new Arena();
+    ByteBuffer sections = ByteBuffer.allocate(arenaOffset);
+
+    for (int i = 0; i < sources.size(); i++) {
+      BinaryPropertyStore.Source source = sources.get(i);
+      int position = sourcesOffset + i * BinaryPropertyStore.SOURCE_SIZE;
+      File sourceFile = source.getFile();
+      arena.reference(sections, position, sourceFile == null ? null : sourceFile.getAbsolutePath());
+      sections.putLong(position + 8, source.getLength());
+      sections.putLong(position + 16, source.getLastModified());
+      sections.putLong(position + 24, source.getChecksum());
+    }
+
+    for (int i = 0; i < lookUps.size(); i++) {
+      arena.reference(sections, lookUpsOffset + i * BinaryPropertyStore.LOOKUP_SIZE, lookUps.get(i));
+    }
+
+    for (int slot = 0; slot < capacity; slot++) {
+      sections.putInt(indexOffset + slot * BinaryPropertyStore.INDEX_SIZE + 4, -1);
+    }
+
+    int entryNumber = 0;
+    for (ClearProperty property : byKey.values()) {
+      String key = property.getKey();
+      int hash = key.hashCode();
+      int slot = (hash * 0x9E3779B9) >>> shift;
+      while (sections.getInt(indexOffset + slot * BinaryPropertyStore.INDEX_SIZE + 4) >= 0) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      sections.putInt(indexOffset + slot * BinaryPropertyStore.INDEX_SIZE, hash);
+      sections.putInt(indexOffset + slot * BinaryPropertyStore.INDEX_SIZE + 4, entryNumber);
+
+      PropertyValue value = new PropertyValue(property.getValue());
+      int entry = entriesOffset + entryNumber * BinaryPropertyStore.ENTRY_SIZE;
+      arena.reference(sections, entry, key);
+      arena.reference(sections, entry + 8, property.getValue());
+      arena.reference(sections, entry + 16, property.getLookUpKey().getLookUpKey());
+      arena.reference(sections, entry + 24, property.getLookUpKey().getLookUp());
+      sections.putInt(entry + 32, isAscii(property.getValue()) ? value.flags() | BinaryPropertyStore.ASCII_VALUE :
+        value.flags());
+      sections.putFloat(entry + 36, value.getFloat());
+      sections.putLong(entry + 40, value.getLong());
+      sections.putDouble(entry + 48, value.getDouble());
+      entryNumber++;
+    }
+
+    sections.putInt(0, BinaryPropertyStore.MAGIC);
+    sections.putInt(4, BinaryPropertyStore.VERSION);
+    sections.putInt(8, count);
+    sections.putInt(12, capacity);
+    sections.putInt(16, lookUps.size());
+    sections.putInt(20, sources.size());
+    sections.putInt(24, sourcesOffset);
+    sections.putInt(28, lookUpsOffset);
+    sections.putInt(32, indexOffset);
+    sections.putInt(36, entriesOffset);
+    sections.putInt(40, arenaOffset);
+    sections.putInt(44, arena.bytes.size());
+
+    int size = arenaOffset + arena.bytes.size();
+    ByteBuffer snapshot = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    snapshot.put(sections.array());
+    snapshot.put(arena.bytes.toByteArray());
+    snapshot.flip();
+    return snapshot;
+  }
+
+  /**
+   * Writes the snapshot file.  The file is written next to its final name and moved into place, so readers
+   * never map a partially written snapshot
+   *
+   * @param properties the properties.  If two properties share a key, the last one wins
+   * @param lookUps the lookUps the properties were filtered with
+   * @param sources the bundles the properties were loaded from
+   * @param file the snapshot file
+   * @throws IOException thrown if the file can't be written
+   */
+  public static void write(Collection<ClearProperty> properties, List<String> lookUps,
+                           List<BinaryPropertyStore.Source> sources, File file) throws IOException {
+    ByteBuffer snapshot = encode(properties, lookUps, sources);
+
+    File absoluteFile = file.getAbsoluteFile();
+    File temporary = File.createTempFile(absoluteFile.getName(), ".tmp", absoluteFile.getParentFile());
+    try {
+      FileOutputStream out = new FileOutputStream(temporary);
+      try {
+        out.write(snapshot.array(), 0, snapshot.limit());
+      } finally {
+        out.close();
+      }
+      Files.move(temporary.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary.toPath());
+    }
+  }
+
+  private static boolean isAscii(String string) {
+    for (int i = 0; i < string.length(); i++) {
+      if (string.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * The string arena, writing each distinct string once
+   */
+  private static final class Arena {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Map<String, Integer> offsets = new HashMap<String, Integer>();
+
+    /**
+     * Writes an offset and length pair referencing the string at the position
+     */
+    void reference(ByteBuffer sections, int position, String string) {
+      if (string == null) {
+        sections.putInt(position, -1);
+        sections.putInt(position + 4, -1);
+        return;
+      }
+
+      byte[] encoded = string.getBytes(BinaryPropertyStore.UTF_8);
+      Integer offset = offsets.get(string);
+      if (offset == null) {
+        offset = bytes.size();
+        bytes.write(encoded, 0, encoded.length);
+        offsets.put(string, offset);
+      }
+
+      sections.putInt(position, offset);
+      sections.putInt(position + 4, encoded.length);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+/**
+ * Compact Bloom-style membership filter over key hash codes.
+ *
+ * The filter is blocked: all three bits for a key live in the same 64-bit word, so a query touches a single
+ * word.  With 16 bits per key the false positive rate stays well under one percent.  A negative answer is
+ * always correct.
+ *
+ * @author jhumphrey
+ */
+final class KeyFilter {
+
+  private final long[] words;
+  private final int shift;
+
+  /**
+   * @param keyCount the number of keys that will be added
+   */
+  KeyFilter(int keyCount) {
+    // 16 bits per key means a quarter of a word per key
+    int wordCount = 1;
+    int bits = 0;
+    while (wordCount * 4 < keyCount) {
+      wordCount <<= 1;
+      bits++;
+    }
+
+    words = new long[wordCount];
+    shift = 64 - bits;
+  }
+
+  void add(int hash) {
+    long mixed = mix(hash);
+    words[word(mixed)] |= bits(mixed);
+  }
+
+  boolean mightContain(int hash) {
+    long mixed = mix(hash);
+    long bits = bits(mixed);
+    return (words[word(mixed)] & bits) == bits;
+  }
+
+  private static long mix(int hash) {
+    return hash * 0x9E3779B97F4A7C15L;
+  }
+
+  private int word(long mixed) {
+    // with a single word the shift is 64, which Java treats as 0, so mask explicitly
+    return words.length == 1 ? 0 : (int) (mixed >>> shift);
+  }
+
+  private static long bits(long mixed) {
+    // the low bits of the product only depend on the low bits of the hash, so take bit positions from the middle
+    return (1L << (mixed >>> 20)) | (1L << (mixed >>> 26)) | (1L << (mixed >>> 32));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A thin overlay of differences read in front of a shared base store.
+ *
+ * A key is looked up in the overlay first.  Keys missing from the overlay fall through to the base, unless the
+ * overlay removed them.  Neither store is copied, so any number of layered stores can share one base while each
+ * only holds its own differences.
+ *
+ * Overlay slots keep their numbers and base slots follow them, offset by the overlay capacity, so slots stay
+ * stable for the life of the layered store like they do for any other store.
+ *
+ * @author jhumphrey
+ */
+public final class LayeredPropertyStore implements PropertyStore {
+
+  private final PropertyStore base;
+  private final PropertyStore overlay;
+  private final Set<String> removed;
+  private final int offset;
+  private final int size;
+
+  /**
+   * Layers an overlay that hides no base keys
+   *
+   * @param base the shared base store
+   * @param overlay the keys added or overridden on top of the base
+   */
+  public LayeredPropertyStore(PropertyStore base, PropertyStore overlay) {
+    this(base, overlay, Collections.<String>emptySet(), sizeOver(base, overlay));
+  }
+
+  /**
+   * @param base the shared base store
+   * @param overlay the keys added or overridden on top of the base
+   * @param removed the base keys hidden by this layer
+   * @param size the number of keys visible through this layer
+   */
+  public LayeredPropertyStore(PropertyStore base, PropertyStore overlay, Set<String> removed, int size) {
+    this.base = base;
+    this.overlay = overlay;
+    this.removed = removed;
+    this.offset = overlay.capacity();
+    this.size = size;
+  }
+
+  private static int sizeOver(PropertyStore base, PropertyStore overlay) {
+    int size = base.size();
+    for (int slot = 0; slot < overlay.capacity(); slot++) {
+      String key = overlay.keyAt(slot);
+      if (key != null && base.indexOf(key) < 0) {
+        size++;
+      }
+    }
+
+    return size;
+  }
+
+  @Override
+  public int indexOf(String key) {
+    int slot = overlay.indexOf(key);
+    if (slot >= 0) {
+      return slot;
+    }
+
+    if (key == null || (!removed.isEmpty() && removed.contains(key))) {
+      return -1;
+    }
+
+    slot = base.indexOf(key);
+    return slot < 0 ? -1 : offset + slot;
+  }
+
+  @Override
+  public PropertyValue get(String key) {
+    int slot = indexOf(key);
+    return slot < 0 ? null : valueAt(slot);
+  }
+
+  @Override
+  public PropertyValue valueAt(int slot) {
+    return slot < offset ? overlay.valueAt(slot) : base.valueAt(slot - offset);
+  }
+
+  @Override
+  public ByteBuffer bytesAt(int slot) {
+    return slot < offset ? overlay.bytesAt(slot) : base.bytesAt(slot - offset);
+  }
+
+  @Override
+  public CharSequence charsAt(int slot) {
+    return slot < offset ? overlay.charsAt(slot) : base.charsAt(slot - offset);
+  }
+
+  @Override
+  public String keyAt(int slot) {
+    if (slot < offset) {
+      return overlay.keyAt(slot);
+    }
+
+    // base slots shadowed by the overlay or removed by this layer read as empty
+    String key = base.keyAt(slot - offset);
+    return key == null || overlay.indexOf(key) >= 0 || removed.contains(key) ? null : key;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int capacity() {
+    return offset + base.capacity();
+  }
+}
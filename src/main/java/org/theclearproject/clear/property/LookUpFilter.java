@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.theclearproject.clear.lookup.LookUpRegistry;
+
+/**
+ * Picks the winning property per key for a list of lookUps in time linear in the number of properties.
+ *
+ * Each lookUp is ranked by its position in the list, earlier lookUps winning.  A lookUp listed more than once
+ * keeps its first rank.  The ranks are compiled once into an array indexed by {@link LookUpRegistry} id, so
+ * ranking a property is an array read no matter how many lookUps a deep lookUp path expands to.  Properties are
+ * then filtered in a single pass: properties whose lookUp isn't listed are dropped, and a property replaces the
+ * current winner for its key only if its lookUp ranks strictly higher.  Within a lookUp, properties earlier in the
+ * collection win.
+ *
+ * A filter is immutable and can be reused for as long as the lookUps don't change.
+ *
+ * @author jhumphrey
+ */
+class LookUpFilter {
+
+  private final List<String> lookUps;
+
+  // rank per lookUp id, -1 for lookUps that aren't listed
+  private final int[] ranks;
+
+  LookUpFilter(List<String> lookUps) {
+    this.lookUps = new ArrayList<String>(lookUps);
+
+    int[] ids = new int[lookUps.size()];
+    int maxId = -1;
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = LookUpRegistry.idOf(lookUps.get(i));
+      maxId = Math.max(maxId, ids[i]);
+    }
+
+    ranks = new int[maxId + 1];
+    Arrays.fill(ranks, -1);
+    int count = 0;
+    for (int id : ids) {
+      if (id >= 0 && ranks[id] < 0) {
+        ranks[id] = count++;
+      }
+    }
+  }
+
+  /**
+   * @return the lookUps this filter was compiled for
+   */
+  List<String> getLookUps() {
+    return lookUps;
+  }
+
+  Map<String, ClearProperty> filter(Collection<ClearProperty> properties) {
+    Map<String, ClearProperty> winners = new HashMap<String, ClearProperty>();
+    for (ClearProperty property : properties) {
+      int rank = rankOf(property);
+      if (rank < 0) {
+        continue;
+      }
+
+      String key = property.getKey();
+      ClearProperty winner = winners.get(key);
+      if (winner == null || rank < rankOf(winner)) {
+        winners.put(key, property);
+      }
+    }
+
+    return winners;
+  }
+
+  private int rankOf(ClearProperty property) {
+    int id = property.getLookUpKey().getLookUpId();
+    return id >= 0 && id < ranks.length ? ranks[id] : -1;
+  }
+}
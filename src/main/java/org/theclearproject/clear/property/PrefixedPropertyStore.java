@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The keys of another store that start with a prefix, addressed by the rest of the key.
+ *
+ * Nothing is copied: a lookup prepends the prefix and probes the underlying store, and slots are those of the
+ * underlying store.
+ *
+ * @author jhumphrey
+ */
+public final class PrefixedPropertyStore implements PropertyStore {
+
+  private final PropertyStore store;
+  private final String prefix;
+  private final int size;
+
+  /**
+   * @param store the underlying store
+   * @param prefix the key prefix
+   * @param size the number of keys in the store that start with the prefix
+   */
+  public PrefixedPropertyStore(PropertyStore store, String prefix, int size) {
+    this.store = store;
+    this.prefix = prefix;
+    this.size = size;
+  }
+
+  @Override
+  public int indexOf(String key) {
+    return key == null ? -1 : store.indexOf(prefix.concat(key));
+  }
+
+  @Override
+  public PropertyValue get(String key) {
+    int slot = indexOf(key);
+    return slot < 0 ? null : store.valueAt(slot);
+  }
+
+  @Override
+  public PropertyValue valueAt(int slot) {
+    return store.valueAt(slot);
+  }
+
+  @Override
+  public ByteBuffer bytesAt(int slot) {
+    return store.bytesAt(slot);
+  }
+
+  @Override
+  public CharSequence charsAt(int slot) {
+    return store.charsAt(slot);
+  }
+
+  @Override
+  public String keyAt(int slot) {
+    String key = store.keyAt(slot);
+    return key != null && key.startsWith(prefix) ? key.substring(prefix.length()) : null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int capacity() {
+    return store.capacity();
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Streaming parser for the {@code .properties} format.
+ *
+ * The parser follows the grammar of {@link java.util.Properties#load(java.io.InputStream)}: ISO-8859-1 input,
+ * {@code #} and {@code !} comments, {@code =}, {@code :} or whitespace separators, line continuations and the
+ * {@code \t}, {@code \n}, {@code \r}, {@code \f} and <code>&#92;uXXXX</code> escapes.  Unlike Properties it decodes
+ * bytes straight out of a ByteBuffer into a reused character buffer and hands every pair to a
+ * {@link PropertyHandler}, so no Reader or Hashtable sits between the file and the caller.
+ *
+ * Pairs are reported in file order.  A key that appears twice is reported twice; callers that need
+ * Properties semantics keep the last value.
+ *
+ * @author jhumphrey
+ */
+public final class PropertiesParser {
+
+  /**
+   * Files at least this large are memory-mapped rather than read onto the heap
+   */
+  static final long MAP_THRESHOLD = 1 << 20;
+
+  private PropertiesParser() {
+  }
+
+  /**
+   * Reads the file into a buffer.  Large files are memory-mapped and small ones read into a heap buffer, where
+   * mapping would cost more than it saves
+   *
+   * @param file the file
+   * @return the buffer, positioned at the start of the file
+   * @throws IOException thrown if the file can't be read
+   */
+  public static ByteBuffer read(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      long size = channel.size();
+      if (size >= MAP_THRESHOLD) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // keep reading
+      }
+      buffer.flip();
+      return buffer;
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Checksums the remaining bytes of the buffer, leaving its position unchanged
+   *
+   * @param buffer the file contents
+   * @return the CRC32 checksum
+   */
+  public static long checksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    if (buffer.hasArray()) {
+      crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      ByteBuffer view = buffer.duplicate();
+      byte[] chunk = new byte[8192];
+      while (view.hasRemaining()) {
+        int count = Math.min(chunk.length, view.remaining());
+        view.get(chunk, 0, count);
+        crc.update(chunk, 0, count);
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Parses the file
+   *
+   * @param file the properties file
+   * @param handler receives the key-value pairs
+   * @throws IOException thrown if the file can't be read
+   */
+  public static void parse(File file, PropertyHandler handler) throws IOException {
+    parse(read(file), handler);
+  }
+
+  /**
+   * Parses the remaining bytes of the buffer.  The buffer's position is advanced to its limit
+   *
+   * @param buffer the ISO-8859-1 encoded properties
+   * @param handler receives the key-value pairs
+   * @throws IllegalArgumentException thrown if the input contains a malformed &#92;uXXXX escape
+   */
+  public static void parse(ByteBuffer buffer, PropertyHandler handler) {
+    LineReader reader = new LineReader(buffer);
+    char[] converted = new char[reader.line.length];
+
+    int limit;
+    while ((limit = reader.readLine()) >= 0) {
+      char[] line = reader.line;
+      if (converted.length < line.length) {
+        converted = new char[line.length];
+      }
+
+      int keyLength = 0;
+      int valueStart = limit;
+      boolean hasSeparator = false;
+      boolean precedingBackslash = false;
+      while (keyLength < limit) {
+        char c = line[keyLength];
+        if ((c == '=' || c == ':') && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          hasSeparator = true;
+          break;
+        } else if (isWhitespace(c) && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          break;
+        }
+
+        precedingBackslash = c == '\\' && !precedingBackslash;
+        keyLength++;
+      }
+
+      while (valueStart < limit) {
+        char c = line[valueStart];
+        if (!isWhitespace(c)) {
+          if (!hasSeparator && (c == '=' || c == ':')) {
+            hasSeparator = true;
+          } else {
+            break;
+          }
+        }
+        valueStart++;
+      }
+
+      String key = unescape(line, 0, keyLength, converted);
+      String value = unescape(line, valueStart, limit, converted);
+      handler.property(key, value);
+    }
+  }
+
+  /**
+   * Resolves the escapes in a range of a logical line
+   *
+   * @param in the logical line
+   * @param start the first character
+   * @param end one past the last character
+   * @param out scratch buffer at least as long as the line
+   * @return the unescaped string
+   */
+  private static String unescape(char[] in, int start, int end, char[] out) {
+    int length = 0;
+    int i = start;
+    while (i < end) {
+      char c = in[i++];
+      if (c != '\\') {
+        out[length++] = c;
+        continue;
+      }
+
+      if (i == end) {
+        // a lone trailing backslash escapes nothing
+        break;
+      }
+
+      c = in[i++];
+      if (c == 'u') {
+        if (end - i < 4) {
+          throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+        }
+
+        int value = 0;
+        for (int j = 0; j < 4; j++) {
+          int digit = Character.digit(in[i++], 16);
+          if (digit < 0) {
+            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+          }
+          value = (value << 4) | digit;
+        }
+        out[length++] = (char) value;
+      } else if (c == 't') {
+        out[length++] = '\t';
+      } else if (c == 'r') {
+        out[length++] = '\r';
+      } else if (c == 'n') {
+        out[length++] = '\n';
+      } else if (c == 'f') {
+        out[length++] = '\f';
+      } else {
+        out[length++] = c;
+      }
+    }
+
+    return new String(out, 0, length);
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\f';
+  }
+
+  /**
+   * Splits the buffer into logical lines, dropping comments, blank lines, leading whitespace and the backslash
+   * and line break of continued lines.
+   *
+   * This is a port of the state machine of the JDK's own Properties line reader, including its handling of a
+   * backslash on the last line of the input and of whitespace and blank lines after a continued line.  Since
+   * Java 9, a comment marker at the start of a continued line that is still empty starts a comment, while Java 8
+   * reads it as the start of a key.  The parser follows the JVM it runs on.  The one difference left is a Java 8
+   * quirk: a comment ending in a backslash escapes the backslash that starts the next line.
+   */
+  private static final class LineReader {
+
+    private static final boolean JAVA_8_COMMENTS = System.getProperty("java.specification.version", "").startsWith("1.");
+
+    private final ByteBuffer buffer;
+    private char[] line = new char[256];
+
+    LineReader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Reads the next logical line into {@link #line}
+     *
+     * @return the length of the line, or -1 at the end of the input
+     */
+    int readLine() {
+      int length = 0;
+      boolean skipWhitespace = true;
+      boolean appendedLineBegin = false;
+      boolean precedingBackslash = false;
+      // whether a continuation emptied the line since it last started
+      boolean continued = false;
+
+      while (true) {
+        if (!buffer.hasRemaining()) {
+          if (length == 0) {
+            return -1;
+          }
+          return precedingBackslash ? length - 1 : length;
+        }
+
+        // ISO-8859-1 maps every byte to the char with the same value
+        char c = (char) (buffer.get() & 0xFF);
+
+        if (skipWhitespace) {
+          if (isWhitespace(c)) {
+            continue;
+          }
+          if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+            continue;
+          }
+          skipWhitespace = false;
+          appendedLineBegin = false;
+        }
+
+        if (length == 0 && (c == '#' || c == '!') && !(JAVA_8_COMMENTS && continued)) {
+          if (!skipComment()) {
+            return -1;
+          }
+          skipWhitespace = true;
+          continue;
+        }
+
+        if (c != '\n' && c != '\r') {
+          if (length == line.length) {
+            char[] grown = new char[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+          }
+          line[length++] = c;
+          precedingBackslash = c == '\\' && !precedingBackslash;
+        } else if (length == 0) {
+          // a continued line that is still empty carries on, and is a new line again as far as Java 8 is concerned
+          skipWhitespace = true;
+          continued = false;
+        } else if (!buffer.hasRemaining()) {
+          // a backslash before the last line break continues onto nothing
+          return precedingBackslash ? length - 1 : length;
+        } else if (precedingBackslash) {
+          // drop the backslash and carry on with the next natural line
+          length--;
+          skipWhitespace = true;
+          appendedLineBegin = true;
+          precedingBackslash = false;
+          continued = true;
+          if (c == '\r' && buffer.get(buffer.position()) == '\n') {
+            buffer.get();
+          }
+        } else {
+          return length;
+        }
+      }
+    }
+
+    /**
+     * Skips the rest of a comment line along with the line break that ends it
+     *
+     * @return false if the input ended inside the comment
+     */
+    private boolean skipComment() {
+      while (buffer.hasRemaining()) {
+        byte b = buffer.get();
+        if (b == '\r' || b == '\n') {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
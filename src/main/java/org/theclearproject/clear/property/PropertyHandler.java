@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+/**
+ * Receives raw key-value pairs from a {@link PropertySource} or {@link PropertiesParser}
+ *
+ * @author jhumphrey
+ */
+public interface PropertyHandler {
+
+  /**
+   * Called once per key-value pair
+   *
+   * @param key the raw key, including any lookUp
+   * @param value the value
+   */
+  void property(String key, String value);
+}
@@ -16,8 +16,9 @@
 
 package org.theclearproject.clear.property;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +26,18 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.log4j.Logger;
+import org.theclearproject.clear.lookup.AbstractLookUpKeyResolver;
 import org.theclearproject.clear.lookup.LookUpKey;
 import org.theclearproject.clear.lookup.LookUpKeyResolver;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * @author jhumphrey
@@ -41,11 +48,50 @@ public class PropertyServiceImpl implements PropertyService {
 
   private LookUpKeyResolver lookUpKeyResolver;
 
+  // translated properties per property source, so sources that are unchanged across a reload aren't translated again
+  private final Map<ResourceBundle, Translation> translations =
+    Collections.synchronizedMap(new WeakHashMap<ResourceBundle, Translation>());
+
+  /**
+   * Name of the optional {@link ForkJoinPool} binding that turns on parallel loading
+   */
+  public static final String LOAD_POOL = "clear.load.pool";
+
+  // when set, bundles are translated concurrently on this pool
+  private ForkJoinPool loadPool;
+
+  // the filter compiled for the last lookUps seen, reused while reloads keep the same lookUps
+  private volatile LookUpFilter lookUpFilter;
+
   @Inject
   public PropertyServiceImpl(LookUpKeyResolver lookUpKeyResolver) {
     this.lookUpKeyResolver = lookUpKeyResolver;
   }
 
+  public PropertyServiceImpl(LookUpKeyResolver lookUpKeyResolver, ForkJoinPool loadPool) {
+    this.lookUpKeyResolver = lookUpKeyResolver;
+    this.loadPool = loadPool;
+  }
+
+  /**
+   * Turns on parallel loading.  Bundles are then translated concurrently, so the {@link LookUpKeyResolver}
+   * must be thread safe
+   *
+   * @param loadPool the pool bundles are translated on
+   */
+  @Inject(optional = true)
+  public void setLoadPool(@Named(LOAD_POOL) ForkJoinPool loadPool) {
+    this.loadPool = loadPool;
+  }
+
+  /**
+   * Drops the cached translations, so nothing from earlier loads is held by this service.  The next load
+   * translates every bundle again
+   */
+  public void clearTranslations() {
+    translations.clear();
+  }
+
   @Override
   public ClearProperty translate(Property property) {
     LookUpKey lookUpKey = lookUpKeyResolver.resolve(property.getKey());
@@ -65,21 +111,38 @@ public class PropertyServiceImpl implements PropertyService {
    * To accomplish this, this methods adds properties into a Set so that those
    * added first have priority
    *
+   * The translated properties of a bundle that is a {@link PropertySource} are cached for as long as the bundle
+   * instance is alive, and reused when it's loaded again with the same checksum.  Any other bundle may change
+   * behind the same instance, so it's translated on every load
+   *
+   * If a load pool is set, the bundles are translated concurrently.  The translations are still merged in list
+   * order, so the result is the same for any number of threads
+   *
+   * Keys and values translated by one load share a {@link StringPool}, so a key defined for several lookUps or a
+   * value repeated across keys is held once
+   *
    * @param resourceBundles a list of resource bundles
    * @return a set of properties
    */
   @Override
   public Set<ClearProperty> load(List<ResourceBundle> resourceBundles) {
-    Set<ClearProperty> props = new HashSet<ClearProperty>();
+    StringPool pool = new StringPool();
+    List<List<ClearProperty>> translatedBundles;
+    if (loadPool == null || resourceBundles.size() < 2) {
+      translatedBundles = new ArrayList<List<ClearProperty>>(resourceBundles.size());
+      for (ResourceBundle resourceBundle : resourceBundles) {
+        translatedBundles.add(translated(translations, lookUpKeyResolver, resourceBundle, pool));
+      }
+    } else {
+      translatedBundles = loadPool.invoke(new LoadTask(translations, lookUpKeyResolver, resourceBundles, pool));
+    }
 
-    // iterates through all bundles, loads the key-value pairs,
-    // and then translate the properties to clear properties
-    for (ResourceBundle resourceBundle : resourceBundles) {
-      Set<String> resourceBundleKeys = resourceBundle.keySet();
-      for (String resourceBundleKey : resourceBundleKeys) {
-        Property property = new Property(resourceBundleKey, resourceBundle.getString(resourceBundleKey));
-        ClearProperty clearProperty = translate(property);
-        props.add(clearProperty);
+    // merges in bundle order so properties from bundles earlier in the list win.  Each bundle is merged from its
+    // end, so a key repeated within one source takes its last value, as with Properties
+    Set<ClearProperty> props = new HashSet<ClearProperty>();
+    for (List<ClearProperty> translated : translatedBundles) {
+      for (int i = translated.size() - 1; i >= 0; i--) {
+        props.add(translated.get(i));
       }
     }
 
@@ -90,6 +153,88 @@ public class PropertyServiceImpl implements PropertyService {
     return props;
   }
 
+  /**
+   * Returns the translated properties of the bundle, translating the bundle if it isn't cached
+   *
+   * @param translations the cached translations
+   * @param resolver resolves the keys of a bundle that isn't cached
+   * @param resourceBundle the resource bundle
+   * @param pool canonicalizes the keys and values of a bundle that isn't cached
+   * @return the clear properties
+   */
+  private static List<ClearProperty> translated(Map<ResourceBundle, Translation> translations,
+                                                LookUpKeyResolver resolver, ResourceBundle resourceBundle,
+                                                StringPool pool) {
+    if (!(resourceBundle instanceof PropertySource)) {
+      return translate(resolver, resourceBundle, pool);
+    }
+
+    long checksum = ((PropertySource) resourceBundle).getChecksum();
+    Translation translation = translations.get(resourceBundle);
+    if (translation == null || translation.checksum != checksum) {
+      translation = new Translation(checksum, translate(resolver, resourceBundle, pool));
+      translations.put(resourceBundle, translation);
+    }
+
+    return translation.properties;
+  }
+
+  /**
+   * Translates every key-value pair in the bundle to a clear property.  Bundles that are a {@link PropertySource}
+   * are streamed rather than looked up key by key.  The keys of a bundle are resolved as one batch when the
+   * resolver extends {@link AbstractLookUpKeyResolver}
+   *
+   * @param resolver resolves the keys
+   * @param resourceBundle the resource bundle
+   * @param pool canonicalizes the keys and values
+   * @return the clear properties
+   */
+  private static List<ClearProperty> translate(LookUpKeyResolver resolver, ResourceBundle resourceBundle,
+                                               StringPool pool) {
+    final List<String> keys = new ArrayList<String>();
+    final List<String> values = new ArrayList<String>();
+    if (resourceBundle instanceof PropertySource) {
+      ((PropertySource) resourceBundle).readProperties(new PropertyHandler() {
+        @Override
+        public void property(String key, String value) {
+          keys.add(key);
+          values.add(value);
+        }
+      });
+    } else {
+      for (String resourceBundleKey : resourceBundle.keySet()) {
+        keys.add(resourceBundleKey);
+        values.add(resourceBundle.getString(resourceBundleKey));
+      }
+    }
+
+    List<LookUpKey> lookUpKeys;
+    if (resolver instanceof AbstractLookUpKeyResolver) {
+      lookUpKeys = ((AbstractLookUpKeyResolver) resolver).resolveAll(keys);
+    } else {
+      lookUpKeys = new ArrayList<LookUpKey>(keys.size());
+      for (String key : keys) {
+        lookUpKeys.add(resolver.resolve(key));
+      }
+    }
+    List<ClearProperty> translated = new ArrayList<ClearProperty>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      LookUpKey lookUpKey = lookUpKeys.get(i);
+      String key = pool.canonical(lookUpKey.getKey());
+      if (key != lookUpKey.getKey()) {
+        lookUpKey = new LookUpKey(lookUpKey.getLookUp(), key, lookUpKey.getLookUpKey());
+      }
+
+      ClearProperty clearProperty = new ClearProperty(lookUpKey, pool.canonical(values.get(i)));
+      if (logger.isTraceEnabled()) {
+        logger.trace("Successfully translated property '" + keys.get(i) + "' to '" + clearProperty.toString() + "'");
+      }
+      translated.add(clearProperty);
+    }
+
+    return translated;
+  }
+
   /**
    * Filters out all properties that don't map to any of the lookUps provided in the lookUps list.
    *
@@ -99,6 +244,9 @@ public class PropertyServiceImpl implements PropertyService {
    *
    * Also prioritizes properties by lookUp.  LookUps who are at the front of the list have higher priority
    *
+   * The work is linear in the number of properties regardless of the number of lookUps.  The lookUp precedence is
+   * compiled once and reused across calls with the same lookUps.  See {@link LookUpFilter}
+   *
    * @param properties a set of {@link org.theclearproject.clear.property.ClearProperty} objects
    * @param lookUps the list of lookUps
    * @return a collection of properties that are filtered by lookUp
@@ -106,25 +254,19 @@ public class PropertyServiceImpl implements PropertyService {
   @Override
   public Collection<ClearProperty> filter(Collection<ClearProperty> properties, List<String> lookUps) {
 
-    Map<String, ClearProperty> filteredProperties = new HashMap<String, ClearProperty>();
-
     // if no lookUps are defined, then return all properties
     if (lookUps.isEmpty()) {
       return properties;
     }
 
-    for (String lookUp : lookUps) {
-      for (ClearProperty prop : properties) {
-        String thisLookUp = prop.getLookUpKey().getLookUp();
-        if (thisLookUp != null && thisLookUp.equals(lookUp)) {
-          String key = prop.getKey();
-          if (!filteredProperties.containsKey(key)) {
-            filteredProperties.put(key, prop);
-          }
-        }
-      }
+    LookUpFilter filter = lookUpFilter;
+    if (filter == null || !filter.getLookUps().equals(lookUps)) {
+      filter = new LookUpFilter(lookUps);
+      lookUpFilter = filter;
     }
 
+    Map<String, ClearProperty> filteredProperties = filter.filter(properties);
+
     if (logger.isDebugEnabled()) {
       logger.debug("Filtered the following properties against lookUps " + lookUps.toString() + ": " + filteredProperties.values());
     }
@@ -136,4 +278,78 @@ public class PropertyServiceImpl implements PropertyService {
   public SortedSet<ClearProperty> sort(Collection<ClearProperty> properties) {
     return new TreeSet<ClearProperty>(properties);
   }
+
+  /**
+   * The translated properties of a property source, along with the checksum of the pairs they were translated from
+   */
+  private static final class Translation {
+    private final long checksum;
+    private final List<ClearProperty> properties;
+
+    private Translation(long checksum, List<ClearProperty> properties) {
+      this.checksum = checksum;
+      this.properties = properties;
+    }
+  }
+
+  /**
+   * Translates each bundle in its own subtask and returns the translations in bundle order.  Tasks are never
+   * serialized
+   */
+  @SuppressWarnings("serial")
+  private static final class LoadTask extends RecursiveTask<List<List<ClearProperty>>> {
+    private final Map<ResourceBundle, Translation> translations;
+    private final LookUpKeyResolver resolver;
+    private final List<ResourceBundle> resourceBundles;
+    private final StringPool pool;
+
+    private LoadTask(Map<ResourceBundle, Translation> translations, LookUpKeyResolver resolver,
+                     List<ResourceBundle> resourceBundles, StringPool pool) {
+      this.translations = translations;
+      this.resolver = resolver;
+      this.resourceBundles = resourceBundles;
+      this.pool = pool;
+    }
+
+    @Override
+    protected List<List<ClearProperty>> compute() {
+      List<ForkJoinTask<List<ClearProperty>>> tasks = new ArrayList<ForkJoinTask<List<ClearProperty>>>(resourceBundles.size());
+      for (ResourceBundle resourceBundle : resourceBundles) {
+        tasks.add(new TranslateTask(translations, resolver, resourceBundle, pool));
+      }
+
+      invokeAll(tasks);
+
+      List<List<ClearProperty>> translatedBundles = new ArrayList<List<ClearProperty>>(tasks.size());
+      for (ForkJoinTask<List<ClearProperty>> task : tasks) {
+        translatedBundles.add(task.join());
+      }
+
+      return translatedBundles;
+    }
+  }
+
+  /**
+   * Translates a single bundle
+   */
+  @SuppressWarnings("serial")
+  private static final class TranslateTask extends RecursiveTask<List<ClearProperty>> {
+    private final Map<ResourceBundle, Translation> translations;
+    private final LookUpKeyResolver resolver;
+    private final ResourceBundle resourceBundle;
+    private final StringPool pool;
+
+    private TranslateTask(Map<ResourceBundle, Translation> translations, LookUpKeyResolver resolver,
+                          ResourceBundle resourceBundle, StringPool pool) {
+      this.translations = translations;
+      this.resolver = resolver;
+      this.resourceBundle = resourceBundle;
+      this.pool = pool;
+    }
+
+    @Override
+    protected List<ClearProperty> compute() {
+      return translated(translations, resolver, resourceBundle, pool);
+    }
+  }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+/**
+ * Implemented by resource bundles that can hand their key-value pairs straight to CLEAR.
+ *
+ * {@link PropertyServiceImpl} reads such bundles through {@link #readProperties(PropertyHandler)} instead of
+ * looking up every key through the ResourceBundle API.  It also keeps the translated properties of a source and
+ * reuses them for as long as the source reports the same {@link #getChecksum() checksum}.
+ *
+ * @author jhumphrey
+ */
+public interface PropertySource {
+
+  /**
+   * Passes every key-value pair to the handler in source order.  A key may be passed more than once, in which
+   * case the last value wins
+   *
+   * @param handler the handler
+   */
+  void readProperties(PropertyHandler handler);
+
+  /**
+   * Returns a checksum of the pairs {@link #readProperties(PropertyHandler)} passes on.  It must change whenever
+   * they do
+   *
+   * @return the checksum
+   */
+  long getChecksum();
+}
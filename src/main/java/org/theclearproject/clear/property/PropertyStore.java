@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read access to an immutable set of property values by key or by slot.
+ *
+ * Slots are stable for the life of the store, so a key can be resolved once with {@link #indexOf(String)} and
+ * its value read with {@link #valueAt(int)} afterwards.
+ *
+ * @author jhumphrey
+ */
+public interface PropertyStore {
+
+  /**
+   * Returns the slot holding the key
+   *
+   * @param key the property key
+   * @return the slot, or -1 if the key isn't in the store
+   */
+  int indexOf(String key);
+
+  /**
+   * Returns the value associated to the key
+   *
+   * @param key the property key
+   * @return the value, or null if the key isn't in the store
+   */
+  PropertyValue get(String key);
+
+  /**
+   * Returns the value stored in a slot returned by {@link #indexOf(String)}
+   *
+   * @param slot the slot
+   * @return the value
+   */
+  PropertyValue valueAt(int slot);
+
+  /**
+   * Returns the UTF-8 encoded value stored in a slot, for callers that consume bytes directly
+   *
+   * @param slot the slot
+   * @return a read-only buffer positioned at the start of the value
+   */
+  ByteBuffer bytesAt(int slot);
+
+  /**
+   * Returns the value stored in a slot as a CharSequence, which stores may hand out without decoding the value
+   * into a String
+   *
+   * @param slot the slot
+   * @return the value
+   */
+  CharSequence charsAt(int slot);
+
+  /**
+   * Returns the key stored in a slot
+   *
+   * @param slot the slot
+   * @return the key, or null if the slot is empty
+   */
+  String keyAt(int slot);
+
+  /**
+   * Returns the number of keys in the store
+   *
+   * @return the number of keys
+   */
+  int size();
+
+  /**
+   * Returns the number of slots.  Occupied slots are those with a non-null {@link #keyAt(int)}
+   *
+   * @return the number of slots
+   */
+  int capacity();
+}
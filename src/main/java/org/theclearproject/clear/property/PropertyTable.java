@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing table of property values keyed by property key.
+ *
+ * Keys, key hashes and values are stored in parallel arrays and collisions are resolved by linear probing, so a
+ * lookup is a single probe sequence with no per-entry objects.  The table is kept at most half full.
+ *
+ * A {@link KeyFilter} over the keys sits in front of the probe sequence, so most lookups of keys that aren't in
+ * the table are rejected after reading a single word.
+ *
+ * Slots are stable for the life of the table, which allows callers to resolve a key to a slot once and read
+ * the value with {@link #valueAt(int)} afterwards.
+ *
+ * @author jhumphrey
+ */
+public final class PropertyTable implements PropertyStore {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final String[] keys;
+  private final int[] hashes;
+  private final PropertyValue[] values;
+  private final int shift;
+  private final int size;
+  private final KeyFilter filter;
+
+  /**
+   * Builds the table from the given properties.  If two properties share a key, the last one wins.
+   *
+   * @param properties the properties to store
+   */
+  public PropertyTable(Collection<ClearProperty> properties) {
+    this(properties, true);
+  }
+
+  /**
+   * @param properties the properties to store
+   * @param filtered whether to build the key filter.  Only turned off to measure the filter
+   */
+  PropertyTable(Collection<ClearProperty> properties, boolean filtered) {
+    this(keys(properties), values(properties), filtered);
+  }
+
+  /**
+   * Builds the table from plain key-value pairs, for values that don't come out of the load pipeline
+   *
+   * @param values the values by key
+   */
+  public PropertyTable(Map<String, String> values) {
+    this(values.keySet().toArray(new String[values.size()]), values.values().toArray(new String[values.size()]),
+      true);
+  }
+
+  private PropertyTable(String[] pairKeys, String[] pairValues, boolean filtered) {
+    int capacity = 2;
+    int bits = 1;
+    while (capacity < pairKeys.length * 2) {
+      capacity <<= 1;
+      bits++;
+    }
+
+    keys = new String[capacity];
+    hashes = new int[capacity];
+    values = new PropertyValue[capacity];
+    shift = 32 - bits;
+
+    int count = 0;
+    for (int i = 0; i < pairKeys.length; i++) {
+      String key = pairKeys[i];
+      int hash = key.hashCode();
+      int slot = slot(hash);
+      while (keys[slot] != null && !(hashes[slot] == hash && keys[slot].equals(key))) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+
+      if (keys[slot] == null) {
+        count++;
+      }
+      keys[slot] = key;
+      hashes[slot] = hash;
+      values[slot] = new PropertyValue(pairValues[i]);
+    }
+
+    size = count;
+
+    if (filtered) {
+      filter = new KeyFilter(count);
+      for (int i = 0; i < capacity; i++) {
+        if (keys[i] != null) {
+          filter.add(hashes[i]);
+        }
+      }
+    } else {
+      filter = null;
+    }
+  }
+
+  private static String[] keys(Collection<ClearProperty> properties) {
+    String[] keys = new String[properties.size()];
+    int i = 0;
+    for (ClearProperty property : properties) {
+      keys[i++] = property.getKey();
+    }
+    return keys;
+  }
+
+  private static String[] values(Collection<ClearProperty> properties) {
+    String[] values = new String[properties.size()];
+    int i = 0;
+    for (ClearProperty property : properties) {
+      values[i++] = property.getValue();
+    }
+    return values;
+  }
+
+  @Override
+  public int indexOf(String key) {
+    if (key == null) {
+      return -1;
+    }
+
+    int hash = key.hashCode();
+    if (filter != null && !filter.mightContain(hash)) {
+      return -1;
+    }
+
+    int slot = slot(hash);
+    int mask = keys.length - 1;
+
+    String candidate;
+    while ((candidate = keys[slot]) != null) {
+      if (candidate == key || (hashes[slot] == hash && candidate.equals(key))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  @Override
+  public PropertyValue get(String key) {
+    int slot = indexOf(key);
+    return slot < 0 ? null : values[slot];
+  }
+
+  @Override
+  public PropertyValue valueAt(int slot) {
+    return values[slot];
+  }
+
+  @Override
+  public ByteBuffer bytesAt(int slot) {
+    return ByteBuffer.wrap(values[slot].getValue().getBytes(UTF_8)).asReadOnlyBuffer();
+  }
+
+  @Override
+  public CharSequence charsAt(int slot) {
+    return values[slot].getValue();
+  }
+
+  @Override
+  public String keyAt(int slot) {
+    return keys[slot];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Fibonacci hashing spreads the String hash codes, which are poorly distributed in the low bits
+   *
+   * @param hash the key hash
+   * @return the home slot
+   */
+  private int slot(int hash) {
+    return (hash * 0x9E3779B9) >>> shift;
+  }
+}
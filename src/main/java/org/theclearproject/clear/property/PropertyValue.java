@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+/**
+ * A property value that is parsed once into all of its primitive representations.
+ *
+ * Each numeric representation carries a flag telling whether the string could be converted.  A value that can't
+ * be converted is remembered as such, so the conversion is never attempted again.
+ *
+ * @author jhumphrey
+ */
+public final class PropertyValue {
+
+  private static final int INT = 1;
+  private static final int LONG = 1 << 1;
+  private static final int SHORT = 1 << 2;
+  private static final int DOUBLE = 1 << 3;
+  private static final int FLOAT = 1 << 4;
+  private static final int BOOLEAN = 1 << 5;
+
+  private final String value;
+  private final int parsed;
+  private final int intValue;
+  private final long longValue;
+  private final short shortValue;
+  private final double doubleValue;
+  private final float floatValue;
+  private final boolean booleanValue;
+
+  public PropertyValue(String value) {
+    this.value = value;
+
+    int parsed = 0;
+    long aLong = 0;
+    double aDouble = 0;
+    float aFloat = 0;
+
+    if (maybeInteger(value)) {
+      try {
+        aLong = Long.parseLong(value);
+        parsed |= LONG;
+        // int and short share the long grammar, so a range check is all that's left
+        if (aLong >= Integer.MIN_VALUE && aLong <= Integer.MAX_VALUE) {
+          parsed |= INT;
+        }
+        if (aLong >= Short.MIN_VALUE && aLong <= Short.MAX_VALUE) {
+          parsed |= SHORT;
+        }
+      } catch (NumberFormatException e) {
+        // not an integer
+      }
+    }
+
+    if (maybeDecimal(value)) {
+      try {
+        aDouble = Double.parseDouble(value);
+        // float shares the double grammar so this can't fail
+        aFloat = Float.parseFloat(value);
+        parsed |= DOUBLE | FLOAT;
+      } catch (NumberFormatException e) {
+        // not a decimal
+      }
+    }
+
+    this.parsed = parsed;
+    this.longValue = aLong;
+    this.intValue = (int) aLong;
+    this.shortValue = (short) aLong;
+    this.doubleValue = aDouble;
+    this.floatValue = aFloat;
+    this.booleanValue = Boolean.parseBoolean(value);
+  }
+
+  /**
+   * Rebuilds a value from the representations of a value parsed earlier, without parsing the string again
+   *
+   * @param value the string value
+   * @param flags the flags returned by {@link #flags()}
+   * @param longValue the long representation, also the source of the int and short ones
+   * @param doubleValue the double representation
+   * @param floatValue the float representation
+   */
+  PropertyValue(String value, int flags, long longValue, double doubleValue, float floatValue) {
+    this.value = value;
+    this.parsed = flags & ~BOOLEAN;
+    this.longValue = longValue;
+    this.intValue = (int) longValue;
+    this.shortValue = (short) longValue;
+    this.doubleValue = doubleValue;
+    this.floatValue = floatValue;
+    this.booleanValue = (flags & BOOLEAN) != 0;
+  }
+
+  /**
+   * Returns which representations are valid, along with the boolean representation, as a bit set
+   *
+   * @return the flags
+   */
+  int flags() {
+    return booleanValue ? parsed | BOOLEAN : parsed;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public boolean isInt() {
+    return (parsed & INT) != 0;
+  }
+
+  public int getInt() {
+    return intValue;
+  }
+
+  public boolean isLong() {
+    return (parsed & LONG) != 0;
+  }
+
+  public long getLong() {
+    return longValue;
+  }
+
+  public boolean isShort() {
+    return (parsed & SHORT) != 0;
+  }
+
+  public short getShort() {
+    return shortValue;
+  }
+
+  public boolean isDouble() {
+    return (parsed & DOUBLE) != 0;
+  }
+
+  public double getDouble() {
+    return doubleValue;
+  }
+
+  public boolean isFloat() {
+    return (parsed & FLOAT) != 0;
+  }
+
+  public float getFloat() {
+    return floatValue;
+  }
+
+  public boolean getBoolean() {
+    return booleanValue;
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+
+  /**
+   * Cheap pre-check so plain text values don't pay for a NumberFormatException at load time
+   *
+   * @param value the value
+   * @return false if the value can't possibly be parsed as a long
+   */
+  private static boolean maybeInteger(String value) {
+    if (value == null || value.isEmpty()) {
+      return false;
+    }
+
+    char first = value.charAt(0);
+    return first == '-' || first == '+' || Character.isDigit(first);
+  }
+
+  /**
+   * Cheap pre-check so plain text values don't pay for a NumberFormatException at load time.  Double parsing
+   * trims whitespace and accepts NaN and Infinity, so those leading characters are let through as well
+   *
+   * @param value the value
+   * @return false if the value can't possibly be parsed as a double
+   */
+  private static boolean maybeDecimal(String value) {
+    if (value == null || value.isEmpty()) {
+      return false;
+    }
+
+    char first = value.charAt(0);
+    return first == '-' || first == '+' || first == '.' || first == 'N' || first == 'I' || first <= ' ' ||
+      (first >= '0' && first <= '9');
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonicalizes equal strings to a single instance.
+ *
+ * Unlike {@link String#intern()} the pool is an ordinary object, so its strings become garbage along with it.
+ * The pool is safe to share between threads.
+ *
+ * @author jhumphrey
+ */
+public final class StringPool {
+
+  private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Returns the pooled instance equal to the string, pooling the string if there is none
+   *
+   * @param string the string, may be null
+   * @return the canonical instance
+   */
+  public String canonical(String string) {
+    if (string == null) {
+      return null;
+    }
+
+    String canonical = strings.get(string);
+    if (canonical == null) {
+      canonical = strings.putIfAbsent(string, string);
+      if (canonical == null) {
+        canonical = string;
+      }
+    }
+
+    return canonical;
+  }
+
+  /**
+   * Returns the number of distinct strings in the pool
+   *
+   * @return the number of strings
+   */
+  public int size() {
+    return strings.size();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class ClearLayerTest {
+
+  private static final String SHARED = "(default)a=1\n(default)b=2\n(default)c=3\n";
+
+  @Test
+  public void testLayeredReads() {
+    Clear base = new ContentInitializer(SHARED).newClear();
+    Clear tenant = new ContentInitializer("(default)b=10\n(tenant)b=20\n(default)d=4\n(other)e=5\n",
+      "tenant").newClear(base);
+
+    Assert.assertEquals(tenant.getInt("a"), 1);
+    Assert.assertEquals(tenant.getInt("b"), 20);
+    Assert.assertEquals(tenant.getInt("c"), 3);
+    Assert.assertEquals(tenant.getInt("d"), 4);
+    Assert.assertNull(tenant.getString("e"));
+    Assert.assertEquals(tenant.intHandle("b").get(), 20);
+    Assert.assertEquals(tenant.intHandle("a").get(), 1);
+    Assert.assertFalse(tenant.intHandle("e").isDefined());
+    Assert.assertEquals(tenant.getKeys(), new HashSet<String>(Arrays.asList("a", "b", "c", "d")));
+    Assert.assertEquals(tenant.getKeys("").size(), 4);
+    Assert.assertEquals(tenant.getProperties().get("b").getLookUpKey().getLookUp(), "tenant");
+    Assert.assertEquals(tenant.getProperties().get("c").getLookUpKey().getLookUp(), "default");
+
+    // the tenant only loads and holds its own overrides
+    Assert.assertEquals(tenant.getInitReport().getRawProperties(), 4);
+    LayeredProperties layered = (LayeredProperties) tenant.getProperties();
+    Assert.assertEquals(layered.overlay().keySet(), new HashSet<String>(Arrays.asList("b", "d")));
+    Assert.assertEquals(base.getInt("b"), 2);
+  }
+
+  @Test
+  public void testReloadPicksUpBase() {
+    ContentInitializer baseInitializer = new ContentInitializer(SHARED);
+    Clear base = baseInitializer.newClear();
+    ContentInitializer tenantInitializer = new ContentInitializer("(tenant)c=30\n", "tenant");
+    Clear tenant = tenantInitializer.newClear(base);
+    IntHandle a = tenant.intHandle("a");
+    Assert.assertEquals(a.get(), 1);
+
+    final List<ConfigurationChangeEvent> events = new ArrayList<ConfigurationChangeEvent>();
+    tenant.addListener("", new ConfigurationListener() {
+      @Override
+      public void configurationChanged(ConfigurationChangeEvent event) {
+        events.add(event);
+      }
+    }, new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    });
+
+    // the tenant is layered over the reloaded base without being reloaded itself
+    baseInitializer.setContent("(default)a=10\n(default)b=2\n(default)c=3\n");
+    base.reload();
+    Assert.assertEquals(a.get(), 10);
+    Assert.assertEquals(tenant.getInt("c"), 30);
+    Assert.assertEquals(((LayeredProperties) tenant.getProperties()).overlay().size(), 1);
+    Assert.assertSame(((LayeredProperties) tenant.getProperties()).base(), base.getProperties());
+    Assert.assertEquals(events.size(), 1);
+    Assert.assertEquals(events.get(0).getChangedKeys(), Collections.singleton("a"));
+
+    // as well as over the base moved off the heap, which changes no values
+    base.setStorageMode(StorageMode.OFF_HEAP);
+    Assert.assertEquals(a.get(), 10);
+    Assert.assertEquals(tenant.getInt("b"), 2);
+    Assert.assertEquals(events.size(), 1);
+  }
+
+  @Test
+  public void testStorageModes() {
+    Clear base = new ContentInitializer(SHARED).newClear();
+    Clear tenant = new ContentInitializer("(tenant)a=5\n", "tenant").newClear(base);
+
+    tenant.setStorageMode(StorageMode.OFF_HEAP);
+    Assert.assertEquals(tenant.getInt("a"), 5);
+    Assert.assertEquals(tenant.getInt("c"), 3);
+    Assert.assertEquals(tenant.getKeys().size(), 3);
+    // off the heap as well, only the overrides are the tenant's own
+    Assert.assertEquals(((LayeredProperties) tenant.getProperties()).overlay().size(), 1);
+
+    tenant.setStorageMode(StorageMode.HEAP);
+    Assert.assertTrue(tenant.getProperties() instanceof LayeredProperties);
+    Assert.assertEquals(tenant.getInt("a"), 5);
+    Assert.assertEquals(tenant.getKeys().size(), 3);
+
+    // over an off-heap base
+    base.setStorageMode(StorageMode.OFF_HEAP);
+    Assert.assertEquals(tenant.getInt("a"), 5);
+    Assert.assertEquals(tenant.getInt("b"), 2);
+    Assert.assertEquals(tenant.getKeys().size(), 3);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class ClearReloadTest {
+
+  @Test
+  public void testReload() {
+    ContentInitializer initializer = new ContentInitializer("(default)timeout=10\n(default)name=clear\n");
+    Clear clear = initializer.newClear();
+
+    IntHandle timeout = clear.intHandle("timeout");
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+    Assert.assertEquals(timeout.get(), 10);
+    Assert.assertEquals(clear.getKeys().size(), 2);
+
+    initializer.setContent("(default)timeout=20\n(default)retries=3\n");
+    clear.reload();
+
+    Assert.assertEquals(clear.getInt("timeout"), 20);
+    Assert.assertEquals(timeout.get(), 20);
+    Assert.assertEquals(clear.getInt("retries"), 3);
+    Assert.assertNull(clear.getString("name"));
+    Assert.assertFalse(clear.stringHandle("name").isDefined());
+    Assert.assertEquals(clear.getKeys().size(), 2);
+  }
+
+  @Test
+  public void testFailedReloadKeepsProperties() {
+    ContentInitializer initializer = new ContentInitializer("(default)timeout=10\n");
+    Clear clear = initializer.newClear();
+
+    IntHandle timeout = clear.intHandle("timeout");
+
+    // no bundles fails validation
+    initializer.setContent(null);
+    try {
+      clear.reload();
+      Assert.fail("Should have thrown an exception because no resource bundles were provided");
+    } catch (ClearException e) {
+      // no-op
+    }
+
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+    Assert.assertEquals(timeout.get(), 10);
+  }
+
+  @Test
+  public void testListeners() {
+    ContentInitializer initializer = new ContentInitializer("(default)db.pool.size=10\n(default)db.url=jdbc\n(default)name=clear\n");
+    Clear clear = initializer.newClear();
+
+    final List<ConfigurationChangeEvent> prefixEvents = new ArrayList<ConfigurationChangeEvent>();
+    final List<ConfigurationChangeEvent> keyEvents = new ArrayList<ConfigurationChangeEvent>();
+    Executor direct = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    clear.addListener("db.", new ConfigurationListener() {
+      @Override
+      public void configurationChanged(ConfigurationChangeEvent event) {
+        prefixEvents.add(event);
+      }
+    }, direct);
+    clear.addListener(Arrays.asList("name"), new ConfigurationListener() {
+      @Override
+      public void configurationChanged(ConfigurationChangeEvent event) {
+        keyEvents.add(event);
+      }
+    }, direct);
+
+    initializer.setContent("(default)db.pool.size=20\n(default)db.url=jdbc\n(default)db.user=sa\n(default)name=clear\n");
+    clear.reload();
+
+    Assert.assertEquals(prefixEvents.size(), 1);
+    Assert.assertEquals(keyEvents.size(), 0);
+
+    ConfigurationChangeEvent event = prefixEvents.get(0);
+    Assert.assertSame(event.getConfiguration(), clear);
+    Assert.assertEquals(event.getChangedKeys(), new HashSet<String>(Arrays.asList("db.pool.size", "db.user")));
+    Assert.assertEquals(event.getOldValue("db.pool.size"), "10");
+    Assert.assertEquals(event.getNewValue("db.pool.size"), "20");
+    Assert.assertNull(event.getOldValue("db.user"));
+    Assert.assertEquals(event.getNewValue("db.user"), "sa");
+
+    initializer.setContent("(default)db.pool.size=20\n(default)db.url=jdbc\n(default)db.user=sa\n");
+    clear.reload();
+
+    Assert.assertEquals(prefixEvents.size(), 1);
+    Assert.assertEquals(keyEvents.size(), 1);
+    Assert.assertEquals(keyEvents.get(0).getOldValue("name"), "clear");
+    Assert.assertNull(keyEvents.get(0).getNewValue("name"));
+  }
+
+  @Test
+  public void testInitReport() {
+    ContentInitializer initializer = new ContentInitializer("(default)timeout=10\n(other)timeout=20\n");
+    Clear clear = initializer.newClear();
+
+    InitReport report = clear.getInitReport();
+    Assert.assertFalse(report.isReload());
+    Assert.assertEquals(report.getBundles(), 1);
+    Assert.assertEquals(report.getRawProperties(), 2);
+    Assert.assertEquals(report.getFilteredProperties(), 1);
+    Assert.assertEquals(report.getLookUps(), 1);
+    for (InitReport.Phase phase : InitReport.Phase.values()) {
+      Assert.assertTrue(report.getNanos(phase) >= 0, phase.name());
+    }
+    Assert.assertTrue(report.toString().contains("filteredProperties=1"));
+
+    initializer.setContent("(default)timeout=10\n(default)retries=3\n");
+    clear.reload();
+    Assert.assertTrue(clear.getInitReport().isReload());
+    Assert.assertEquals(clear.getInitReport().getFilteredProperties(), 2);
+
+    // a failed reload keeps the last report
+    initializer.setContent(null);
+    try {
+      clear.reload();
+      Assert.fail("Should have thrown an exception because no resource bundles were provided");
+    } catch (ClearException e) {
+      // no-op
+    }
+    Assert.assertEquals(clear.getInitReport().getFilteredProperties(), 2);
+  }
+}
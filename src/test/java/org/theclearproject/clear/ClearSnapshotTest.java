@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.validation.Validation;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.init.AbstractInitializer;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.BinaryPropertyStore;
+import org.theclearproject.clear.property.ClearProperty;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * @author jhumphrey
+ */
+public class ClearSnapshotTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("clear").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Test
+  public void testStartFromSnapshot() throws IOException {
+    File properties = write(new File(directory, "app.properties"),
+      "(default)timeout=10\n(default)name=clear\n(other)timeout=99\n");
+    File snapshotFile = new File(directory, "app.snapshot");
+
+    CountingInitializer initializer = new CountingInitializer(properties);
+    SnapshotCompiler.compile(initializer, snapshotFile);
+    Assert.assertEquals(initializer.count, 1);
+
+    // the initializer runs to check the snapshot, but nothing is loaded
+    initializer = new CountingInitializer(properties);
+    Clear clear = newClear(initializer, snapshotFile);
+    Assert.assertEquals(initializer.count, 1);
+    Assert.assertEquals(clear.getInitReport().getRawProperties(), -1);
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+    Assert.assertEquals(clear.intHandle("timeout").get(), 10);
+    Assert.assertEquals(clear.getString("name"), "clear");
+    Assert.assertNull(clear.getString("missing"));
+    Assert.assertEquals(clear.getKeys().size(), 2);
+    Assert.assertEquals(clear.sourceFiles().get(0), properties.getAbsoluteFile());
+
+    // reloads go through the initializer
+    write(properties, "(default)timeout=20\n(default)name=clear\n");
+    clear.reload();
+    Assert.assertEquals(initializer.count, 2);
+    Assert.assertEquals(clear.getInt("timeout"), 20);
+  }
+
+  @Test
+  public void testStaleSnapshotFallsBack() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n");
+    File snapshotFile = new File(directory, "app.snapshot");
+    SnapshotCompiler.compile(new CountingInitializer(properties), snapshotFile);
+
+    write(properties, "(default)timeout=30\n");
+    properties.setLastModified(properties.lastModified() + 2000);
+
+    CountingInitializer initializer = new CountingInitializer(properties);
+    Clear clear = newClear(initializer, snapshotFile);
+    Assert.assertEquals(initializer.count, 1);
+    Assert.assertTrue(clear.getInitReport().getRawProperties() >= 0);
+    Assert.assertEquals(clear.getInt("timeout"), 30);
+
+    // a missing or unreadable snapshot falls back as well
+    initializer = new CountingInitializer(properties);
+    newClear(initializer, new File(directory, "missing.snapshot"));
+    Assert.assertEquals(initializer.count, 1);
+
+    initializer = new CountingInitializer(properties);
+    newClear(initializer, properties);
+    Assert.assertEquals(initializer.count, 1);
+  }
+
+  @Test
+  public void testChangedLookUpsFallBack() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n(other)timeout=99\n");
+    File snapshotFile = new File(directory, "app.snapshot");
+    SnapshotCompiler.compile(new CountingInitializer(properties), snapshotFile);
+
+    CountingInitializer initializer = new CountingInitializer(properties);
+    initializer.lookUp = "other";
+    Clear clear = newClear(initializer, snapshotFile);
+    Assert.assertTrue(clear.getInitReport().getRawProperties() >= 0);
+    Assert.assertEquals(clear.getInt("timeout"), 99);
+  }
+
+  @Test
+  public void testChangedClasspathBundleFallsBack() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n");
+    File snapshotFile = new File(directory, "app.snapshot");
+    CountingInitializer compiling = new CountingInitializer(properties);
+    compiling.bundle = bundle("(default)name", "clear");
+    SnapshotCompiler.compile(compiling, snapshotFile);
+
+    CountingInitializer initializer = new CountingInitializer(properties);
+    initializer.bundle = bundle("(default)name", "clear");
+    Clear clear = newClear(initializer, snapshotFile);
+    Assert.assertEquals(clear.getInitReport().getRawProperties(), -1);
+    Assert.assertEquals(clear.getString("name"), "clear");
+
+    initializer = new CountingInitializer(properties);
+    initializer.bundle = bundle("(default)name", "changed");
+    clear = newClear(initializer, snapshotFile);
+    Assert.assertTrue(clear.getInitReport().getRawProperties() >= 0);
+    Assert.assertEquals(clear.getString("name"), "changed");
+  }
+
+  @Test
+  public void testCorruptEntryFallsBack() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n");
+    File snapshotFile = new File(directory, "app.snapshot");
+    SnapshotCompiler.compile(new CountingInitializer(properties), snapshotFile);
+
+    // point the value of the only entry past the end of the arena
+    byte[] bytes = Files.readAllBytes(snapshotFile.toPath());
+    int entries = ((bytes[36] & 0xFF) << 24) | ((bytes[37] & 0xFF) << 16) | ((bytes[38] & 0xFF) << 8) | (bytes[39] & 0xFF);
+    bytes[entries + 12] = 0x7F;
+    Files.write(snapshotFile.toPath(), bytes);
+
+    Clear clear = newClear(new CountingInitializer(properties), snapshotFile);
+    Assert.assertTrue(clear.getInitReport().getRawProperties() >= 0);
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+  }
+
+  @Test
+  public void testOffHeapStorage() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n(default)name=clear\n");
+
+    Clear clear = new Clear(new CountingInitializer(properties), Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+    IntHandle timeout = clear.intHandle("timeout");
+    Assert.assertEquals(timeout.get(), 10);
+
+    clear.setStorageMode(StorageMode.OFF_HEAP);
+    Assert.assertEquals(clear.getStorageMode(), StorageMode.OFF_HEAP);
+    Assert.assertEquals(timeout.get(), 10);
+    Assert.assertEquals(clear.getString("name"), "clear");
+    Assert.assertEquals(clear.getCharSequence("name").toString(), "clear");
+    Assert.assertEquals(clear.getBytes("name").remaining(), 5);
+    Assert.assertNull(clear.getBytes("missing"));
+    Assert.assertEquals(clear.getKeys().size(), 2);
+
+    // reloads stay off the heap
+    write(properties, "(default)timeout=20\n(default)name=clear\n");
+    clear.reload();
+    Assert.assertEquals(timeout.get(), 20);
+    Assert.assertFalse(clear.getCharSequence("name") instanceof String);
+
+    clear.setStorageMode(StorageMode.HEAP);
+    Assert.assertEquals(timeout.get(), 20);
+    Assert.assertTrue(clear.getCharSequence("name") instanceof String);
+  }
+
+  @Test
+  public void testOffHeapRetainsNoStrings() throws IOException {
+    File properties = write(new File(directory, "app.properties"), "(default)timeout=10\n(default)name=clear\n");
+    ReleasingPropertyService propertyService = new ReleasingPropertyService();
+    Clear clear = new Clear(new CountingInitializer(properties), Validation.buildDefaultValidatorFactory().getValidator(),
+      propertyService, new ClearSettings().setStorageMode(StorageMode.OFF_HEAP));
+
+    // off the heap from the first load on, with nothing but the off-heap store holding the properties
+    Assert.assertEquals(clear.getStorageMode(), StorageMode.OFF_HEAP);
+    Assert.assertTrue(clear.table() instanceof BinaryPropertyStore);
+    Assert.assertFalse(propertyService.holdsTranslations);
+    Assert.assertNotSame(clear.getProperties(), clear.getProperties());
+    Assert.assertFalse(clear.getCharSequence("name") instanceof String);
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+
+    write(properties, "(default)timeout=20\n(default)name=clear\n");
+    clear.reload();
+    Assert.assertTrue(clear.table() instanceof BinaryPropertyStore);
+    Assert.assertFalse(propertyService.holdsTranslations);
+    Assert.assertEquals(clear.getInt("timeout"), 20);
+  }
+
+  private Clear newClear(AbstractInitializer initializer, File snapshotFile) {
+    return new Clear(initializer, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()), snapshotFile);
+  }
+
+  private File write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(Charset.forName("ISO-8859-1")));
+    return file;
+  }
+
+  private static ResourceBundle bundle(final String key, final String value) {
+    return new ListResourceBundle() {
+      @Override
+      protected Object[][] getContents() {
+        return new Object[][] {{key, value}};
+      }
+    };
+  }
+
+  /**
+   * Tracks whether translations cached by a load are still held
+   */
+  private static class ReleasingPropertyService extends PropertyServiceImpl {
+    private boolean holdsTranslations;
+
+    private ReleasingPropertyService() {
+      super(new ParenthesesLookUpKeyResolver());
+    }
+
+    @Override
+    public Set<ClearProperty> load(List<ResourceBundle> resourceBundles) {
+      holdsTranslations = true;
+      return super.load(resourceBundles);
+    }
+
+    @Override
+    public void clearTranslations() {
+      holdsTranslations = false;
+      super.clearTranslations();
+    }
+  }
+
+  private static class CountingInitializer extends AbstractInitializer {
+    private final File file;
+    private String lookUp = "default";
+    private ResourceBundle bundle;
+    private int count;
+
+    private CountingInitializer(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public void initClear() {
+      count++;
+      if (bundle == null) {
+        withResourceBundle(fileResourceBundle(file)).addLookUp(lookUp);
+      } else {
+        withResourceBundle(fileResourceBundle(file), bundle).addLookUp(lookUp);
+      }
+    }
+  }
+}
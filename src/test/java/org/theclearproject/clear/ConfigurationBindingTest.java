@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class ConfigurationBindingTest {
+
+  public interface DbConfig {
+    @ClearValue("db.pool.size")
+    int poolSize();
+
+    @ClearValue(value = "db.timeout", defaultValue = "30")
+    long timeout();
+
+    @ClearValue("db.timeout.unit")
+    TimeUnit timeoutUnit();
+
+    @ClearValue("db.url")
+    String url();
+
+    @ClearValue("db.ssl")
+    Boolean ssl();
+  }
+
+  public interface PoolConfig {
+    int size();
+  }
+
+  public interface BrokenConfig {
+    int size(int index);
+  }
+
+  @Test
+  public void testBind() {
+    ContentInitializer initializer = new ContentInitializer("(default)db.pool.size=10\n(default)db.url=jdbc\n" +
+      "(default)db.timeout.unit=SECONDS\n");
+    Clear clear = initializer.newClear();
+
+    DbConfig config = clear.bind(DbConfig.class);
+    Assert.assertEquals(config.poolSize(), 10);
+    Assert.assertEquals(config.timeout(), 30);
+    Assert.assertEquals(config.timeoutUnit(), TimeUnit.SECONDS);
+    Assert.assertEquals(config.url(), "jdbc");
+    Assert.assertNull(config.ssl());
+    Assert.assertEquals(config, config);
+    Assert.assertTrue(config.toString().contains("db.pool.size=10"));
+
+    // unannotated methods read the key named after them, here under a subset
+    Assert.assertEquals(clear.getSubset("db.pool.").bind(PoolConfig.class).size(), 10);
+
+    initializer.setContent("(default)db.pool.size=20\n(default)db.url=jdbc\n(default)db.timeout=5\n" +
+      "(default)db.timeout.unit=MINUTES\n(default)db.ssl=true\n");
+    clear.reload();
+    Assert.assertEquals(config.poolSize(), 20);
+    Assert.assertEquals(config.timeout(), 5);
+    Assert.assertEquals(config.timeoutUnit(), TimeUnit.MINUTES);
+    Assert.assertTrue(config.ssl());
+  }
+
+  @Test
+  public void testBindFailsFast() {
+    Clear clear = new ContentInitializer("(default)db.pool.size=ten\n(default)size=1\n").newClear();
+
+    try {
+      clear.bind(DbConfig.class);
+      Assert.fail("Should have thrown an exception because db.pool.size isn't an int");
+    } catch (ClearException e) {
+      // no-op
+    }
+
+    try {
+      clear.getSubset("missing.").bind(PoolConfig.class);
+      Assert.fail("Should have thrown an exception because size is undefined");
+    } catch (ClearException e) {
+      // no-op
+    }
+
+    try {
+      clear.bind(BrokenConfig.class);
+      Assert.fail("Should have thrown an exception because the method takes a parameter");
+    } catch (ClearException e) {
+      // no-op
+    }
+  }
+
+  @Test
+  public void testReloadKeepsLastGoodValue() {
+    ContentInitializer initializer = new ContentInitializer("(default)db.pool.size=10\n(default)db.url=jdbc\n" +
+      "(default)db.timeout.unit=SECONDS\n");
+    Clear clear = initializer.newClear();
+    clear.getStats().setMode(StatsMode.FULL);
+    DbConfig config = clear.bind(DbConfig.class);
+
+    initializer.setContent("(default)db.pool.size=ten\n(default)db.url=jdbc2\n(default)db.timeout.unit=SECONDS\n");
+    clear.reload();
+    Assert.assertEquals(clear.getStats().getParseFailures("db.pool.size"), 1);
+    Assert.assertEquals(config.poolSize(), 10);
+    Assert.assertEquals(config.url(), "jdbc2");
+
+    // converted once by the reload, not again by the calls
+    Assert.assertEquals(clear.getStats().getParseFailures("db.pool.size"), 1);
+  }
+
+  @Test
+  public void testScopeFailsOnlyItsMethod() throws Exception {
+    Clear clear = new ContentInitializer("(default)db.pool.size=10\n(default)db.url=jdbc\n" +
+      "(default)db.timeout.unit=SECONDS\n").newClear();
+    clear.getStats().setMode(StatsMode.FULL);
+    final DbConfig config = clear.bind(DbConfig.class);
+
+    ConfigurationScope scope = clear.openScope(Collections.singletonMap("db.pool.size", "ten"));
+    try {
+      for (int i = 0; i < 3; i++) {
+        Assert.assertEquals(config.url(), "jdbc");
+        try {
+          config.poolSize();
+          Assert.fail("Should have thrown an exception because db.pool.size isn't an int in the scope");
+        } catch (ClearException e) {
+          Assert.assertTrue(e.getMessage().contains("db.pool.size"));
+        }
+
+        // another thread reading the unscoped store in between doesn't make either convert again
+        final int[] poolSize = new int[1];
+        Thread reader = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            poolSize[0] = config.poolSize();
+          }
+        });
+        reader.start();
+        reader.join();
+        Assert.assertEquals(poolSize[0], 10);
+      }
+    } finally {
+      scope.close();
+    }
+    Assert.assertEquals(config.poolSize(), 10);
+    Assert.assertEquals(clear.getStats().getParseFailures("db.pool.size"), 1);
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class ConfigurationScopeTest {
+
+  @Test
+  public void testOverrideView() {
+    ContentInitializer initializer = new ContentInitializer("(default)timeout=10\n(default)name=clear\n(default)retries=3\n");
+    Clear clear = initializer.newClear();
+
+    Map<String, String> overrides = new HashMap<String, String>();
+    overrides.put("timeout", "2");
+    overrides.put("customer", "acme");
+    overrides.put("retries", null);
+    Configuration view = clear.withOverrides(overrides);
+
+    Assert.assertEquals(view.getInt("timeout"), 2);
+    Assert.assertEquals(view.intHandle("timeout").get(), 2);
+    Assert.assertEquals(view.getString("name"), "clear");
+    Assert.assertEquals(view.getString("customer"), "acme");
+    Assert.assertNull(view.getString("retries"));
+    Assert.assertEquals(view.getKeys(), new HashSet<String>(Arrays.asList("timeout", "name", "customer")));
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+    Assert.assertEquals(clear.getInt("retries"), 3);
+
+    // views nest and follow reloads
+    Configuration nested = view.withOverrides(Collections.singletonMap("name", "nested"));
+    initializer.setContent("(default)timeout=20\n(default)name=reloaded\n(default)region=eu\n");
+    clear.reload();
+    Assert.assertEquals(view.getInt("timeout"), 2);
+    Assert.assertEquals(view.getString("name"), "reloaded");
+    Assert.assertEquals(view.getString("region"), "eu");
+    Assert.assertEquals(nested.getString("name"), "nested");
+    Assert.assertEquals(nested.getInt("timeout"), 2);
+  }
+
+  @Test
+  public void testThreadScope() throws InterruptedException {
+    final Clear clear = new ContentInitializer("(default)timeout=10\n(default)name=clear\n").newClear();
+    final IntHandle timeout = clear.intHandle("timeout");
+
+    ConfigurationScope outer = clear.openScope(Collections.singletonMap("timeout", "2"));
+    Assert.assertEquals(clear.getInt("timeout"), 2);
+    Assert.assertEquals(timeout.get(), 2);
+
+    ConfigurationScope inner = clear.openScope(Collections.singletonMap("name", "scoped"));
+    Assert.assertEquals(clear.getInt("timeout"), 2);
+    Assert.assertEquals(clear.getString("name"), "scoped");
+
+    // other threads don't see the scope
+    final AtomicInteger seen = new AtomicInteger();
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        seen.set(timeout.get());
+      }
+    });
+    other.start();
+    other.join();
+    Assert.assertEquals(seen.get(), 10);
+
+    try {
+      outer.close();
+      Assert.fail("Should have thrown an exception because the inner scope is still open");
+    } catch (ClearException e) {
+      // no-op
+    }
+
+    inner.close();
+    Assert.assertEquals(clear.getString("name"), "clear");
+    Assert.assertEquals(outer.getConfiguration().getInt("timeout"), 2);
+    outer.close();
+    outer.close();
+    Assert.assertEquals(clear.getInt("timeout"), 10);
+    Assert.assertEquals(timeout.get(), 10);
+  }
+
+  @Test
+  public void testThreadScopeAccessor() throws InterruptedException {
+    final Clear clear = new ContentInitializer("(default)timeout=10\n(default)name=clear\n").newClear();
+    final KeyAccessor keys = clear.accessor(new KeySchema("timeout", "name", "customer"));
+    Assert.assertEquals(keys.getInt(0), 10);
+
+    // scoped reads look up the scoped store, and unscoped reads in between keep the published slots
+    ConfigurationScope scope = clear.openScope(Collections.singletonMap("customer", "acme"));
+    try {
+      for (int i = 0; i < 3; i++) {
+        Assert.assertEquals(keys.getString(2), "acme");
+        Assert.assertEquals(keys.getInt(0), 10);
+
+        final AtomicInteger seen = new AtomicInteger();
+        Thread other = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            seen.set(keys.isDefined(2) ? -1 : keys.getInt(0));
+          }
+        });
+        other.start();
+        other.join();
+        Assert.assertEquals(seen.get(), 10);
+      }
+    } finally {
+      scope.close();
+    }
+    Assert.assertFalse(keys.isDefined(2));
+  }
+
+  @Test
+  public void testThreadScopeKeepsPublishedBindings() throws InterruptedException {
+    final Clear clear = new ContentInitializer("(default)db.timeout=10\n(default)db.name=clear\n").newClear();
+    final IntHandle timeout = clear.intHandle("db.timeout");
+    final Configuration db = clear.getSubset("db.");
+    final StringHandle name = db.stringHandle("name");
+
+    ConfigurationScope scope = clear.openScope(Collections.singletonMap("db.name", "scoped"));
+    try {
+      for (int i = 0; i < 3; i++) {
+        Assert.assertEquals(timeout.get(), 10);
+        Assert.assertEquals(name.get(), "scoped");
+        Assert.assertEquals(db.getString("name"), "scoped");
+
+        final String[] seen = new String[2];
+        Thread other = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            seen[0] = name.get();
+            seen[1] = db.getString("name");
+          }
+        });
+        other.start();
+        other.join();
+        Assert.assertEquals(seen, new String[] {"clear", "clear"});
+      }
+    } finally {
+      scope.close();
+    }
+    Assert.assertEquals(name.get(), "clear");
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class ConfigurationSubsetTest {
+
+  private static final String CONTENT = "(default)db.pool.size=10\n(default)db.pool.timeout=30\n(default)db.url=jdbc\n" +
+    "(default)db.poolName=main\n(default)name=clear\n(default)z=last\n";
+
+  @Test
+  public void testPrefixKeys() {
+    Clear clear = new ContentInitializer(CONTENT).newClear();
+
+    Assert.assertEquals(new ArrayList<String>(clear.getKeys("db.pool.")), Arrays.asList("db.pool.size", "db.pool.timeout"));
+    Assert.assertEquals(new ArrayList<String>(clear.getKeys("db.pool")),
+      Arrays.asList("db.pool.size", "db.pool.timeout", "db.poolName"));
+    Assert.assertEquals(clear.getKeys("db.").size(), 4);
+    Assert.assertEquals(clear.getKeys("").size(), 6);
+    Assert.assertEquals(clear.getKeys("name"), Collections.singleton("name"));
+    Assert.assertTrue(clear.getKeys("a").isEmpty());
+    Assert.assertTrue(clear.getKeys("zz").isEmpty());
+    Assert.assertTrue(clear.getKeys("db.").contains("db.url"));
+    Assert.assertFalse(clear.getKeys("db.").contains("name"));
+  }
+
+  @Test
+  public void testSubset() {
+    ContentInitializer initializer = new ContentInitializer(CONTENT);
+    Clear clear = initializer.newClear();
+
+    Configuration pool = clear.getSubset("db.pool.");
+    IntHandle size = pool.intHandle("size");
+    Assert.assertEquals(pool.getInt("size"), 10);
+    Assert.assertEquals(size.get(), 10);
+    Assert.assertEquals(pool.getInt("timeout"), 30);
+    Assert.assertNull(pool.getString("url"));
+    Assert.assertEquals(pool.getKeys(), new HashSet<String>(Arrays.asList("size", "timeout")));
+    Assert.assertEquals(pool.getKeys("t"), Collections.singleton("timeout"));
+    Assert.assertTrue(pool.getKeys().contains("size"));
+
+    // subsets nest and take overrides
+    Configuration db = clear.getSubset("db.");
+    Assert.assertEquals(db.getSubset("pool.").getInt("size"), 10);
+    Configuration overridden = pool.withOverrides(Collections.singletonMap("size", "5"));
+    Assert.assertEquals(overridden.getInt("size"), 5);
+    Assert.assertEquals(overridden.getInt("timeout"), 30);
+    Assert.assertEquals(clear.withOverrides(Collections.singletonMap("db.pool.max", "50")).getSubset("db.pool.")
+      .getKeys(), new HashSet<String>(Arrays.asList("size", "timeout", "max")));
+
+    initializer.setContent("(default)db.pool.size=20\n");
+    clear.reload();
+    Assert.assertEquals(size.get(), 20);
+    Assert.assertEquals(pool.getKeys(), Collections.singleton("size"));
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.PropertyResourceBundle;
+
+import org.theclearproject.clear.init.AbstractInitializer;
+import org.theclearproject.clear.init.LookUpBuilder;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * Initializes a {@link Clear} from properties content held in memory.  The content is read on every load, so tests
+ * reload a {@link Clear} by changing it with {@link #setContent(String)}.  A null content loads an empty bundle.
+ *
+ * @author jhumphrey
+ */
+public class ContentInitializer extends AbstractInitializer {
+  private final String[] lookUps;
+  private volatile String content;
+
+  /**
+   * @param content the properties content
+   * @param lookUps lookUps searched ahead of 'default', in order
+   */
+  public ContentInitializer(String content, String... lookUps) {
+    this.content = content;
+    this.lookUps = lookUps;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  @Override
+  public void initClear() {
+    String content = this.content;
+    LookUpBuilder builder;
+    if (content == null) {
+      builder = withResourceBundle();
+    } else {
+      try {
+        builder = withResourceBundle(new PropertyResourceBundle(new ByteArrayInputStream(content.getBytes("ISO-8859-1"))));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    for (String lookUp : lookUps) {
+      builder.addLookUp(lookUp);
+    }
+    builder.addLookUp("default");
+  }
+
+  /**
+   * @return a {@link Clear} over the content, with the default validator and parentheses lookUp keys
+   */
+  public Clear newClear() {
+    return new Clear(this, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+  }
+
+  /**
+   * @param settings the settings of the {@link Clear}
+   * @return a {@link Clear} over the content, with the given settings
+   */
+  public Clear newClear(ClearSettings settings) {
+    return new Clear(this, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()), settings);
+  }
+
+  /**
+   * @param base the {@link Clear} the content is layered over
+   * @return a {@link Clear} over the content, layered over the base
+   */
+  public Clear newClear(Clear base) {
+    return new Clear(this, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()), base);
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import javax.validation.Validation;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.init.AbstractInitializer;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * @author jhumphrey
+ */
+public class KeySchemaGeneratorTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("clear").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Test
+  public void testGenerate() throws IOException {
+    File properties = write(new File(directory, "app.properties"),
+      "(default)db.poolSize=10\n(production)db.poolSize=50\n(default)db.url=jdbc\ndb_url=other\n(default)schema=x\n");
+
+    List<String> keys = new ArrayList<String>(KeySchemaGenerator.keys(Arrays.asList(properties)));
+    Assert.assertEquals(keys, Arrays.asList("db.poolSize", "db.url", "db_url", "schema"));
+
+    File sourceFile = KeySchemaGenerator.write("com.example.AppKeys", directory, Arrays.asList(properties));
+    String source = new String(Files.readAllBytes(sourceFile.toPath()), Charset.forName("UTF-8"));
+    Assert.assertEquals(sourceFile, new File(directory, "com/example/AppKeys.java"));
+    Assert.assertTrue(source.startsWith("package com.example;"));
+    Assert.assertTrue(source.contains("public final class AppKeys {"));
+    Assert.assertTrue(source.contains("KeySchema.joined(\n    \"db.poolSize\\000db.url\\000db_url\\000schema\");"));
+    Assert.assertTrue(source.contains("public static final int DB_POOL_SIZE = 0;"));
+    Assert.assertTrue(source.contains("public static final int DB_URL = 1;"));
+    Assert.assertTrue(source.contains("public static final int DB_URL_2 = 2;"));
+    Assert.assertTrue(source.contains("public static final int SCHEMA_2 = 3;"));
+  }
+
+  @Test
+  public void testGenerateEmptyKey() {
+    String source = KeySchemaGenerator.generate("AppKeys", Arrays.asList("", "a", "b"));
+    Assert.assertTrue(source.contains("KeySchema.joined(\n    \"\\000a\\000b\");"));
+    Assert.assertTrue(source.contains("public static final int KEY_ = 0;"));
+    Assert.assertTrue(source.contains("public static final int A = 1;"));
+
+    KeySchema schema = KeySchema.joined(KeySchema.SEPARATOR + "a" + KeySchema.SEPARATOR + "b");
+    Assert.assertEquals(schema.keys(), Arrays.asList("", "a", "b"));
+
+    source = KeySchemaGenerator.generate("AppKeys", Arrays.asList(""));
+    Assert.assertTrue(source.contains("KeySchema.joined(\n    \"\");"));
+  }
+
+  @Test
+  public void testGeneratedSourceCompiles() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new SkipException("No Java compiler available");
+    }
+
+    // line terminators must not become unicode escapes, and an octal escape must not swallow a following digit
+    List<String> keys = Arrays.asList("", "line\nbreak", "carriage\rreturn", "tab\t1", "\u00011", "quote\"back\\",
+      "caf\u00e9");
+    File sourceFile = new File(directory, "GeneratedKeys.java");
+    Files.write(sourceFile.toPath(), KeySchemaGenerator.generate("GeneratedKeys", keys).getBytes(Charset.forName("UTF-8")));
+    String classpath = new File(KeySchema.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    Assert.assertEquals(compiler.run(null, null, null, "-cp", classpath, "-d", directory.getPath(), sourceFile.getPath()), 0);
+
+    URLClassLoader loader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, getClass().getClassLoader());
+    try {
+      KeySchema schema = (KeySchema) loader.loadClass("GeneratedKeys").getField("SCHEMA").get(null);
+      Assert.assertEquals(schema.keys(), keys);
+    } finally {
+      loader.close();
+    }
+  }
+
+  @Test
+  public void testConstantNames() {
+    Assert.assertEquals(KeySchemaGenerator.constantName("db.pool.size"), "DB_POOL_SIZE");
+    Assert.assertEquals(KeySchemaGenerator.constantName("httpPort2Max"), "HTTP_PORT2_MAX");
+    Assert.assertEquals(KeySchemaGenerator.constantName("-a--b-"), "A_B");
+    Assert.assertEquals(KeySchemaGenerator.constantName("3rd.party"), "KEY_3RD_PARTY");
+    Assert.assertEquals(KeySchemaGenerator.constantName("..."), "KEY_");
+  }
+
+  @Test
+  public void testAccessor() throws IOException {
+    final File properties = write(new File(directory, "app.properties"), "(default)db.pool.size=10\n(default)name=clear\n");
+    Clear clear = new Clear(new AbstractInitializer() {
+      @Override
+      public void initClear() {
+        withResourceBundle(fileResourceBundle(properties)).addLookUp("default");
+      }
+    }, Validation.buildDefaultValidatorFactory().getValidator(), new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+
+    KeySchema schema = KeySchema.joined("db.pool.size" + KeySchema.SEPARATOR + "missing", "name");
+    Assert.assertEquals(schema.keys(), Arrays.asList("db.pool.size", "missing", "name"));
+
+    KeyAccessor keys = clear.accessor(schema);
+    Assert.assertEquals(keys.getInt(0), 10);
+    Assert.assertFalse(keys.isDefined(1));
+    Assert.assertEquals(keys.getInt(1, 5), 5);
+    Assert.assertEquals(keys.getString(2), "clear");
+    try {
+      keys.getLong(1);
+      Assert.fail("Should have thrown an exception because the key is undefined");
+    } catch (ClearException e) {
+      // no-op
+    }
+
+    write(properties, "(default)db.pool.size=20\n(default)missing=1\n");
+    clear.reload();
+    Assert.assertEquals(keys.getInt(0), 20);
+    Assert.assertEquals(keys.getLong(1), 1);
+    Assert.assertNull(keys.getString(2));
+  }
+
+  private File write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(Charset.forName("ISO-8859-1")));
+    return file;
+  }
+}
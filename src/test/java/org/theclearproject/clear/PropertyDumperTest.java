@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.lookup.LookUpKey;
+import org.theclearproject.clear.property.ClearProperty;
+
+/**
+ * @author jhumphrey
+ */
+public class PropertyDumperTest {
+
+  @Test
+  public void testFormat() {
+    Map<String, ClearProperty> previous = properties("db.url", "jdbc", "db.password", "old", "name", "clear");
+    Map<String, ClearProperty> current = properties("db.url", "jdbc", "db.password", "new", "retries", "3");
+
+    String loaded = PropertyDumper.format(Arrays.asList("default"), null, previous);
+    Assert.assertEquals(loaded, "CLEAR properties loaded: properties=3 lookUps=[default]\n" +
+      "  default: db.password=****\n  default: db.url=jdbc\n  default: name=clear");
+
+    String reloaded = PropertyDumper.format(Arrays.asList("default"), previous, current);
+    Assert.assertEquals(reloaded, "CLEAR properties reloaded: properties=3 changed=3 lookUps=[default]\n" +
+      "  ~ default: db.password=**** (was ****)\n  - name\n  + default: retries=3");
+  }
+
+  @Test
+  public void testIsSecret() {
+    Assert.assertTrue(PropertyDumper.isSecret("db.Password"));
+    Assert.assertTrue(PropertyDumper.isSecret("auth.apiKey"));
+    Assert.assertTrue(PropertyDumper.isSecret("oauth.token.refresh"));
+    Assert.assertFalse(PropertyDumper.isSecret("db.url"));
+    Assert.assertFalse(PropertyDumper.isSecret("pass"));
+  }
+
+  @Test
+  public void testAsyncDump() throws InterruptedException {
+    RecordingAppender appender = new RecordingAppender();
+    Logger logger = Logger.getLogger(Clear.class);
+    logger.addAppender(appender);
+    try {
+      ContentInitializer initializer = new ContentInitializer("(default)timeout=10\n(default)name=clear\n");
+      Clear clear = initializer.newClear(new ClearSettings().setDumpMode(DumpMode.ASYNC));
+      Assert.assertEquals(clear.getDumpMode(), DumpMode.ASYNC);
+
+      // the first load is logged as one record as well, rather than line by line on the constructing thread
+      String record = null;
+      while (record == null || !record.startsWith("CLEAR properties loaded")) {
+        Assert.assertFalse("default: timeout=10".equals(record), "The first load was logged synchronously");
+        record = appender.messages.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(record, "The first load wasn't logged");
+      }
+      Assert.assertTrue(record.endsWith("\n  default: name=clear\n  default: timeout=10"), record);
+
+      initializer.setContent("(default)timeout=20\n(default)name=clear\n");
+      clear.reload();
+      record = null;
+      while (record == null || !record.startsWith("CLEAR properties reloaded")) {
+        record = appender.messages.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(record, "The reload wasn't logged");
+      }
+      Assert.assertTrue(record.endsWith("\n  ~ default: timeout=20 (was 10)"), record);
+      clear.destroy();
+    } finally {
+      logger.removeAppender(appender);
+    }
+  }
+
+  @Test
+  public void testSyncDumpMasksSecrets() {
+    RecordingAppender appender = new RecordingAppender();
+    Logger logger = Logger.getLogger(Clear.class);
+    logger.addAppender(appender);
+    try {
+      ContentInitializer initializer = new ContentInitializer("(default)db.password=hunter2\n(default)name=clear\n");
+      Clear clear = initializer.newClear();
+      Assert.assertEquals(clear.getDumpMode(), DumpMode.SYNC);
+      Assert.assertTrue(appender.messages.contains("default: db.password=****"), appender.messages.toString());
+      Assert.assertTrue(appender.messages.contains("default: name=clear"), appender.messages.toString());
+
+      initializer.setContent("(default)db.password=hunter3\n");
+      clear.reload();
+      Assert.assertTrue(appender.messages.contains("default: db.password=****"), appender.messages.toString());
+      for (String message : appender.messages) {
+        Assert.assertFalse(message.contains("hunter"), message);
+      }
+      clear.destroy();
+    } finally {
+      logger.removeAppender(appender);
+    }
+  }
+
+  private static Map<String, ClearProperty> properties(String... pairs) {
+    Map<String, ClearProperty> properties = new LinkedHashMap<String, ClearProperty>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      properties.put(pairs[i], new ClearProperty(new LookUpKey("default", pairs[i], "(default)" + pairs[i]),
+        pairs[i + 1]));
+    }
+    return properties;
+  }
+
+  private static class RecordingAppender extends AppenderSkeleton {
+    private final BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+    @Override
+    protected void append(LoggingEvent event) {
+      messages.add(event.getRenderedMessage());
+    }
+
+    @Override
+    public boolean requiresLayout() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear;
+
+import javax.validation.Validation;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ResourceBundle;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.init.AbstractInitializer;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+import org.theclearproject.clear.property.PropertyServiceImpl;
+
+/**
+ * @author jhumphrey
+ */
+public class ResourceBundleWatcherTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("clear").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Test
+  public void testUnchangedFilesAreReused() throws IOException {
+    File changing = write(new File(directory, "changing.properties"), "(default)timeout=10\n");
+    File unchanged = write(new File(directory, "unchanged.properties"), "(default)name=clear\n");
+
+    FileInitializer initializer = new FileInitializer(changing, unchanged);
+    Clear clear = newClear(initializer);
+    ResourceBundle changingBundle = initializer.getClearContext().resourceBundles.get(0);
+    ResourceBundle unchangedBundle = initializer.getClearContext().resourceBundles.get(1);
+
+    write(changing, "(default)timeout=20\n");
+    changing.setLastModified(changing.lastModified() + 2000);
+    unchanged.setLastModified(unchanged.lastModified() + 2000);
+    clear.reload();
+
+    Assert.assertNotSame(initializer.getClearContext().resourceBundles.get(0), changingBundle);
+    Assert.assertSame(initializer.getClearContext().resourceBundles.get(1), unchangedBundle);
+    Assert.assertEquals(clear.getInt("timeout"), 20);
+    Assert.assertEquals(clear.getString("name"), "clear");
+  }
+
+  @Test
+  public void testWatcherReloads() throws Exception {
+    File file = write(new File(directory, "watched.properties"), "(default)timeout=10\n");
+
+    Clear clear = newClear(new FileInitializer(file));
+    IntHandle timeout = clear.intHandle("timeout");
+
+    ResourceBundleWatcher watcher = new ResourceBundleWatcher(clear, 50);
+    watcher.start();
+    try {
+      write(file, "(default)timeout=20\n");
+      file.setLastModified(file.lastModified() + 2000);
+
+      long deadline = System.currentTimeMillis() + 10000;
+      while (timeout.get() != 20 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+
+      Assert.assertEquals(timeout.get(), 20);
+    } finally {
+      watcher.close();
+    }
+  }
+
+  private Clear newClear(AbstractInitializer initializer) {
+    return new Clear(initializer, Validation.buildDefaultValidatorFactory().getValidator(),
+      new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()));
+  }
+
+  private File write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(Charset.forName("ISO-8859-1")));
+    return file;
+  }
+
+  private static class FileInitializer extends AbstractInitializer {
+    private final File[] files;
+
+    private FileInitializer(File... files) {
+      this.files = files;
+    }
+
+    @Override
+    public void initClear() {
+      ResourceBundle[] bundles = new ResourceBundle[files.length];
+      for (int i = 0; i < files.length; i++) {
+        bundles[i] = fileResourceBundle(files[i]);
+      }
+
+      withResourceBundle(bundles).addLookUp("default");
+    }
+  }
+}
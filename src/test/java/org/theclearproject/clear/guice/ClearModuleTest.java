@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.guice;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.Clear;
+import org.theclearproject.clear.ClearValue;
+import org.theclearproject.clear.Configuration;
+import org.theclearproject.clear.ContentInitializer;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+/**
+ * @author jhumphrey
+ */
+public class ClearModuleTest {
+
+  public static class Pool {
+    @Inject
+    @ClearValue("db.url")
+    private String url;
+
+    @Inject
+    @ClearValue("db.ssl")
+    private boolean ssl;
+
+    private final int size;
+    private final Provider<Integer> sizeProvider;
+
+    @Inject
+    public Pool(@ClearValue("db.pool.size") int size, @ClearValue("db.pool.size") Provider<Integer> sizeProvider) {
+      this.size = size;
+      this.sizeProvider = sizeProvider;
+    }
+  }
+
+  public static class Missing {
+    @Inject
+    @ClearValue("db.missing")
+    private String missing;
+  }
+
+  public static class Malformed {
+    @Inject
+    @ClearValue("db.url")
+    private int url;
+  }
+
+  @Test
+  public void testInject() {
+    ContentInitializer initializer = new ContentInitializer("(default)db.pool.size=10\n(default)db.url=jdbc\n" +
+      "(default)db.ssl=TRUE\n(default)other=1\n");
+    Clear clear = initializer.newClear();
+    Injector injector = Guice.createInjector(new ClearModule(clear, new RequireModule(Pool.class)));
+
+    Pool pool = injector.getInstance(Pool.class);
+    Assert.assertEquals(pool.url, "jdbc");
+    Assert.assertTrue(pool.ssl);
+    Assert.assertEquals(pool.size, 10);
+    Assert.assertEquals(pool.sizeProvider.get().intValue(), 10);
+    Assert.assertSame(injector.getInstance(Configuration.class), clear);
+
+    // only the keys injected are bound, as the types injected
+    Set<String> bound = new HashSet<String>();
+    for (Key<?> key : injector.getBindings().keySet()) {
+      if (key.getAnnotation() instanceof ClearValue) {
+        bound.add(((ClearValue) key.getAnnotation()).value() + ":" + key.getTypeLiteral());
+      }
+    }
+    Assert.assertEquals(bound, new HashSet<String>(Arrays.asList("db.url:java.lang.String",
+      "db.ssl:java.lang.Boolean", "db.pool.size:java.lang.Integer")));
+
+    // providers read the current value, values read at injection keep theirs
+    initializer.setContent("(default)db.pool.size=20\n(default)db.url=jdbc\n(default)db.ssl=false\n");
+    clear.reload();
+    Assert.assertEquals(pool.size, 10);
+    Assert.assertEquals(pool.sizeProvider.get().intValue(), 20);
+    Assert.assertFalse(injector.getInstance(Pool.class).ssl);
+  }
+
+  @Test
+  public void testInjectFailsFast() {
+    Clear clear = new ContentInitializer("(default)db.url=jdbc\n").newClear();
+
+    try {
+      Guice.createInjector(new ClearModule(clear, new RequireModule(Missing.class)));
+      Assert.fail("Should have thrown an exception because db.missing is undefined");
+    } catch (CreationException e) {
+      Assert.assertTrue(e.getMessage().contains("No value exists for key 'db.missing' injected as java.lang.String"),
+        e.getMessage());
+    }
+
+    try {
+      Guice.createInjector(new ClearModule(clear, new RequireModule(Malformed.class)));
+      Assert.fail("Should have thrown an exception because db.url isn't an int");
+    } catch (CreationException e) {
+      Assert.assertTrue(e.getMessage().contains("Value 'jdbc' for key 'db.url' can't be converted to java.lang.Integer"),
+        e.getMessage());
+    }
+  }
+
+  private static class RequireModule extends AbstractModule {
+    private final Class<?> type;
+
+    private RequireModule(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    protected void configure() {
+      bind(type);
+    }
+  }
+}
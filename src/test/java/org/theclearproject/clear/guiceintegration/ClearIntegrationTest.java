@@ -23,11 +23,20 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.theclearproject.clear.Clear;
 import org.theclearproject.clear.ClearException;
+import org.theclearproject.clear.ConfigurationStats;
+import org.theclearproject.clear.DumpMode;
+import org.theclearproject.clear.IntHandle;
+import org.theclearproject.clear.KeyAccessor;
+import org.theclearproject.clear.KeySchema;
+import org.theclearproject.clear.StatsMode;
+import org.theclearproject.clear.StorageMode;
 import org.theclearproject.clear.property.ClearProperty;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.name.Names;
 
 /**
  * This is an integration level test using GUICE dependency injection
@@ -250,4 +259,145 @@ public class ClearIntegrationTest {
       // no op
     }
   }
+
+  @Test
+  public void testHandles() {
+    Assert.assertEquals(clear.stringHandle("foo").get(), "bark");
+    Assert.assertNull(clear.stringHandle("nonExistentString").get());
+    Assert.assertEquals(clear.stringHandle("nonExistentString").get("hux"), "hux");
+    Assert.assertEquals(clear.intHandle("blas").get(), 1);
+    Assert.assertEquals(clear.intHandle("intDefault").get(24), 24);
+    Assert.assertEquals(clear.longHandle("fred").get(), 1234123512342323341L);
+    Assert.assertEquals(clear.doubleHandle("frank").get(), 2.34);
+    Assert.assertEquals(clear.floatHandle("frank").get(), 2.34F);
+    Assert.assertEquals(clear.shortHandle("blas").get(), (short) 1);
+    Assert.assertTrue(clear.booleanHandle("gorp").get());
+    Assert.assertTrue(clear.intHandle("blas").isDefined());
+    Assert.assertFalse(clear.intHandle("nonExistentInt").isDefined());
+
+    IntHandle handle = clear.intHandle("foo");
+    try {
+      handle.get();
+      Assert.fail("Should have thrown an exception, key 'foo' maps to a string that can't be converted to an int");
+    } catch (ClearException e) {
+      // no-op
+    }
+    try {
+      clear.intHandle("nonExistentInt").get();
+      Assert.fail("Should have thrown an exception because key is non-existent and default value isn't specified");
+    } catch (ClearException e) {
+      // no op
+    }
+  }
+
+  @Test
+  public void testStats() {
+    ConfigurationStats stats = clear.getStats();
+    Assert.assertEquals(stats.getMode(), StatsMode.OFF);
+
+    clear.getString("foo");
+    Assert.assertEquals(stats.getHits("foo"), 0);
+
+    stats.setMode(StatsMode.FULL);
+    try {
+      clear.getString("foo");
+      clear.getString("foo");
+      clear.getInt("intDefault", 24);
+      clear.getString("nonExistentString");
+      try {
+        clear.getInt("foo");
+        Assert.fail("Should have thrown an exception, key 'foo' maps to a string that can't be converted to an int");
+      } catch (ClearException e) {
+        // no-op
+      }
+
+      Assert.assertEquals(stats.getHits("foo"), 3);
+      Assert.assertEquals(stats.getParseFailures("foo"), 1);
+      Assert.assertEquals(stats.getMisses("intDefault"), 1);
+      Assert.assertEquals(stats.getDefaultFallbacks("intDefault"), 1);
+      Assert.assertEquals(stats.getMisses("nonExistentString"), 1);
+      Assert.assertEquals(stats.getDefaultFallbacks("nonExistentString"), 0);
+      Assert.assertTrue(stats.getKeys().contains("intDefault"));
+    } finally {
+      stats.setMode(StatsMode.OFF);
+      stats.reset();
+    }
+  }
+
+  @Test
+  public void testStatsBoundMissedKeys() {
+    ConfigurationStats stats = clear.getStats();
+    stats.setMode(StatsMode.FULL);
+    try {
+      for (int i = 0; i < ConfigurationStats.MAX_MISSED_KEYS + 10; i++) {
+        clear.getString("missing." + i);
+      }
+      clear.getString("missing.0");
+      clear.getString("foo");
+
+      // the first keys missed are still counted, later ones only in total, and defined keys are always tracked
+      Assert.assertEquals(stats.getKeys().size(), ConfigurationStats.MAX_MISSED_KEYS + 1);
+      Assert.assertEquals(stats.getMisses("missing.0"), 2);
+      Assert.assertEquals(stats.getMisses("missing." + ConfigurationStats.MAX_MISSED_KEYS), 0);
+      Assert.assertEquals(stats.getUntrackedMisses(), 10);
+      Assert.assertEquals(stats.getHits("foo"), 1);
+
+      stats.reset();
+      clear.getString("missing.x");
+      Assert.assertEquals(stats.getMisses("missing.x"), 1);
+      Assert.assertEquals(stats.getUntrackedMisses(), 0);
+    } finally {
+      stats.setMode(StatsMode.OFF);
+      stats.reset();
+    }
+  }
+
+  public interface FooConfig {
+    String foo();
+  }
+
+  @Test
+  public void testStatsCountHandlesAccessorsAndBindings() {
+    ConfigurationStats stats = clear.getStats();
+    IntHandle intDefault = clear.intHandle("intDefault");
+    KeyAccessor accessor = clear.accessor(new KeySchema("foo"));
+    FooConfig config = clear.bind(FooConfig.class);
+
+    stats.setMode(StatsMode.FULL);
+    try {
+      Assert.assertEquals(intDefault.get(24), 24);
+      Assert.assertEquals(accessor.getString(0), "bark");
+      Assert.assertEquals(config.foo(), "bark");
+      try {
+        clear.intHandle("foo").get();
+        Assert.fail("Should have thrown an exception, key 'foo' maps to a string that can't be converted to an int");
+      } catch (ClearException e) {
+        // no-op
+      }
+
+      Assert.assertEquals(stats.getMisses("intDefault"), 1);
+      Assert.assertEquals(stats.getDefaultFallbacks("intDefault"), 1);
+      Assert.assertEquals(stats.getHits("foo"), 3);
+      Assert.assertEquals(stats.getParseFailures("foo"), 1);
+    } finally {
+      stats.setMode(StatsMode.OFF);
+      stats.reset();
+    }
+  }
+
+  @Test
+  public void testSettingsComeFromNamedBindings() {
+    Assert.assertEquals(clear.getStorageMode(), StorageMode.HEAP);
+
+    Clear offHeap = Guice.createInjector(new ClearIntegrationGuiceModule(), new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(StorageMode.class).annotatedWith(Names.named(Clear.STORAGE_MODE)).toInstance(StorageMode.OFF_HEAP);
+        bind(DumpMode.class).annotatedWith(Names.named(Clear.DUMP_MODE)).toInstance(DumpMode.OFF);
+      }
+    }).getInstance(Clear.class);
+    Assert.assertEquals(offHeap.getStorageMode(), StorageMode.OFF_HEAP);
+    Assert.assertEquals(offHeap.getDumpMode(), DumpMode.OFF);
+    Assert.assertEquals(offHeap.getString("foo"), "bark");
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.init;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.theclearproject.clear.ClearException;
+
+/**
+ * @author jhumphrey
+ */
+public class AbstractJndiInitializerTest {
+
+  private final AbstractJndiInitializer initializer = new AbstractJndiInitializer() {
+    @Override
+    protected String getLookUpPathName() {
+      return "clear.lookUp.path";
+    }
+
+    @Override
+    protected ResourceBundle[] getResourceBundles() {
+      return new ResourceBundle[0];
+    }
+  };
+
+  @Test
+  public void testShallowPaths() {
+    Assert.assertEquals(initializer.extractLookUps(null), Collections.<String>emptyList());
+    Assert.assertEquals(initializer.extractLookUps(""), Collections.<String>emptyList());
+    Assert.assertEquals(initializer.extractLookUps("X"), Arrays.asList("X"));
+    Assert.assertEquals(initializer.extractLookUps("X.Y"), Arrays.asList("X.Y", "Y", "X"));
+    Assert.assertEquals(initializer.extractLookUps("X.Y.Z"), Arrays.asList("X.Y.Z", "Y.Z", "Z", "X.Y", "Y", "X"));
+  }
+
+  @Test
+  public void testDeepPath() {
+    List<String> lookUps = initializer.extractLookUps("region.environment.cluster.rack.host");
+
+    Assert.assertEquals(lookUps.size(), 15);
+    Assert.assertEquals(lookUps.subList(0, 5), Arrays.asList("region.environment.cluster.rack.host",
+      "environment.cluster.rack.host", "cluster.rack.host", "rack.host", "host"));
+    Assert.assertEquals(lookUps.subList(5, 9), Arrays.asList("region.environment.cluster.rack",
+      "environment.cluster.rack", "cluster.rack", "rack"));
+    Assert.assertEquals(lookUps.subList(12, 15), Arrays.asList("region.environment", "environment", "region"));
+  }
+
+  @Test
+  public void testRepeatedLookUpsListedOnce() {
+    Assert.assertEquals(initializer.extractLookUps("a.b.a"), Arrays.asList("a.b.a", "b.a", "a", "a.b", "b"));
+  }
+
+  @Test(expectedExceptions = ClearException.class)
+  public void testEmptyLookUp() {
+    initializer.extractLookUps("X..Z");
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.init;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.property.PropertyHandler;
+
+/**
+ * @author jhumphrey
+ */
+public class FileResourceBundleTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("clear").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Test
+  public void testReadsServeLoadedContents() throws IOException {
+    File file = write(new File(directory, "clear.properties"), "(default)timeout=10\n(default)name=clear\n");
+    FileResourceBundle bundle = FileResourceBundle.load(file);
+    Assert.assertEquals(read(bundle).get("(default)timeout"), "10");
+
+    // the bundle keeps serving what it was loaded from, through either API, until it's refreshed
+    write(file, "(default)timeout=20\n");
+    Assert.assertEquals(read(bundle).get("(default)timeout"), "10");
+    Assert.assertEquals(bundle.getString("(default)timeout"), "10");
+    Assert.assertEquals(bundle.keySet(), new HashSet<String>(Arrays.asList("(default)timeout", "(default)name")));
+    Assert.assertEquals(new HashSet<String>(Collections.list(bundle.getKeys())), bundle.keySet());
+
+    FileResourceBundle refreshed = bundle.refresh();
+    Assert.assertNotSame(refreshed, bundle);
+    Assert.assertEquals(refreshed.getString("(default)timeout"), "20");
+    Assert.assertEquals(read(bundle).get("(default)timeout"), "10");
+  }
+
+  @Test
+  public void testRefreshComparesChecksums() throws IOException {
+    File file = write(new File(directory, "clear.properties"), "(default)timeout=10\n");
+    FileResourceBundle bundle = FileResourceBundle.load(file);
+    long lastModified = bundle.getLastModified();
+
+    // touching the file keeps the bundle
+    Assert.assertTrue(file.setLastModified(lastModified + 2000));
+    Assert.assertSame(bundle.refresh(), bundle);
+    Assert.assertEquals(bundle.getLastModified(), file.lastModified());
+
+    // a rewrite with the same length and modification time is still a change
+    write(file, "(default)timeout=20\n");
+    Assert.assertTrue(file.setLastModified(bundle.getLastModified()));
+    Assert.assertEquals(file.length(), bundle.getLength());
+    FileResourceBundle refreshed = bundle.refresh();
+    Assert.assertNotSame(refreshed, bundle);
+    Assert.assertNotEquals(refreshed.getChecksum(), bundle.getChecksum());
+    Assert.assertEquals(read(refreshed).get("(default)timeout"), "20");
+  }
+
+  private static Map<String, String> read(FileResourceBundle bundle) {
+    final Map<String, String> properties = new HashMap<String, String>();
+    bundle.readProperties(new PropertyHandler() {
+      @Override
+      public void property(String key, String value) {
+        properties.put(key, value);
+      }
+    });
+    return properties;
+  }
+
+  private static File write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(Charset.forName("ISO-8859-1")));
+    return file;
+  }
+}
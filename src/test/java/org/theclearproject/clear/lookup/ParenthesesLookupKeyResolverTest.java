@@ -16,6 +16,9 @@
 
 package org.theclearproject.clear.lookup;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -95,4 +98,54 @@ public class ParenthesesLookupKeyResolverTest {
     Assert.assertEquals(actualLookUpKey.getKey(), expectedKey);
     Assert.assertEquals(actualLookUpKey.getLookUpKey(), expectedKey);
   }
+
+  @Test
+  public void testSplitEdgeCases() {
+    ParenthesesLookUpKeyResolver resolver = new ParenthesesLookUpKeyResolver();
+
+    // the answers the split-based resolver gave
+    assertResolved(resolver.resolve("a(b)c(d)e"), "b", "c");
+    assertResolved(resolver.resolve("x(foo)bar"), "foo", "bar");
+    assertResolved(resolver.resolve("()bar"), "", "bar");
+    assertResolved(resolver.resolve("(foo))bar"), "foo", "");
+    assertResolved(resolver.resolve("(foo)bar)baz"), "foo", "bar");
+    assertResolved(resolver.resolve("(foo)bar(baz"), "foo", "bar");
+    assertResolved(resolver.resolve("(foo))"), null, "(foo))");
+    assertResolved(resolver.resolve("((foo)bar"), null, "((foo)bar");
+    assertResolved(resolver.resolve("(foo(bar)baz"), null, "(foo(bar)baz");
+    assertResolved(resolver.resolve(""), null, "");
+    Assert.assertNull(resolver.resolve(null));
+  }
+
+  @Test
+  public void testResolveAll() {
+    ParenthesesLookUpKeyResolver resolver = new ParenthesesLookUpKeyResolver();
+
+    List<LookUpKey> resolved = resolver.resolveAll(Arrays.asList("(foo)a", "(foo)b", "c", null, "(bar)d", "(foo)e"));
+
+    Assert.assertEquals(resolved.size(), 6);
+    assertResolved(resolved.get(0), "foo", "a");
+    assertResolved(resolved.get(1), "foo", "b");
+    assertResolved(resolved.get(2), null, "c");
+    Assert.assertNull(resolved.get(3));
+    assertResolved(resolved.get(4), "bar", "d");
+    assertResolved(resolved.get(5), "foo", "e");
+    Assert.assertSame(resolved.get(5).getLookUp(), resolved.get(0).getLookUp());
+
+    // a batch gives the same answers as resolving one key at a time, including for lookUps that share a length
+    List<String> lookUpKeys = Arrays.asList("a(b)c(d)e", "x(foo)bar", "()bar", "(foo))bar", "(fop)bar)baz",
+      "(foo)bar(baz", "(foo))", "((foo)bar", "(foo(bar)baz", "", "(fo)o", "(foo)");
+    resolved = resolver.resolveAll(lookUpKeys);
+    for (int i = 0; i < lookUpKeys.size(); i++) {
+      LookUpKey expected = resolver.resolve(lookUpKeys.get(i));
+      assertResolved(resolved.get(i), expected.getLookUp(), expected.getKey());
+      Assert.assertEquals(resolved.get(i).getLookUpKey(), expected.getLookUpKey());
+    }
+  }
+
+  private static void assertResolved(LookUpKey lookUpKey, String expectedLookUp, String expectedKey) {
+    Assert.assertNotNull(lookUpKey);
+    Assert.assertEquals(lookUpKey.getLookUp(), expectedLookUp);
+    Assert.assertEquals(lookUpKey.getKey(), expectedKey);
+  }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.lookup.LookUpKey;
+
+/**
+ * @author jhumphrey
+ */
+public class BinaryPropertyStoreTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    properties.add(property("prod", "port", "8080"));
+    properties.add(property("prod", "ratio", "0.25"));
+    properties.add(property("prod", "enabled", "true"));
+    properties.add(property(null, "name", "clear"));
+    properties.add(property("prod", "caf\u00e9.\u20ac", "n\u00e4me"));
+    properties.add(property("prod", "empty", ""));
+
+    BinaryPropertyStore store = new BinaryPropertyStore(BinaryPropertyWriter.encode(properties,
+      Arrays.asList("prod", "dev"), Collections.<BinaryPropertyStore.Source>emptyList()));
+
+    Assert.assertEquals(store.size(), 6);
+    Assert.assertEquals(store.getLookUps(), Arrays.asList("prod", "dev"));
+
+    PropertyValue port = store.get("port");
+    Assert.assertTrue(port.isInt());
+    Assert.assertTrue(port.isShort());
+    Assert.assertEquals(port.getInt(), 8080);
+    Assert.assertEquals(port.getLong(), 8080L);
+
+    PropertyValue ratio = store.get("ratio");
+    Assert.assertFalse(ratio.isLong());
+    Assert.assertEquals(ratio.getDouble(), 0.25);
+    Assert.assertEquals(ratio.getFloat(), 0.25F);
+
+    Assert.assertTrue(store.get("enabled").getBoolean());
+    Assert.assertFalse(store.get("name").getBoolean());
+    Assert.assertEquals(store.get("caf\u00e9.\u20ac").getValue(), "n\u00e4me");
+    Assert.assertEquals(store.get("empty").getValue(), "");
+    Assert.assertNull(store.get("missing"));
+    Assert.assertNull(store.get("portx"));
+    Assert.assertNull(store.get(null));
+
+    int slot = store.indexOf("port");
+    Assert.assertEquals(store.keyAt(slot), "port");
+    Assert.assertSame(store.valueAt(slot), port);
+
+    Map<String, ClearProperty> decoded = store.properties();
+    Assert.assertEquals(new ArrayList<String>(decoded.keySet()),
+      Arrays.asList("port", "ratio", "enabled", "name", "caf\u00e9.\u20ac", "empty"));
+    Assert.assertEquals(decoded.get("port").getLookUpKey().getLookUp(), "prod");
+    Assert.assertEquals(decoded.get("port").getLookUpKey().getLookUpKey(), "(prod)port");
+    Assert.assertNull(decoded.get("name").getLookUpKey().getLookUp());
+  }
+
+  @Test
+  public void testUncachedAccessors() throws IOException {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    properties.add(property("prod", "routes", "{\"a\": [1, 2]}"));
+    properties.add(property("prod", "greeting", "gr\u00fc\u00df dich"));
+
+    ByteBuffer snapshot = BinaryPropertyWriter.encode(properties, Collections.singletonList("prod"),
+      Collections.<BinaryPropertyStore.Source>emptyList(), true);
+    Assert.assertTrue(snapshot.isDirect());
+
+    BinaryPropertyStore store = new BinaryPropertyStore(snapshot, false);
+    Assert.assertEquals(store.get("routes").getValue(), "{\"a\": [1, 2]}");
+    Assert.assertNotSame(store.get("routes"), store.get("routes"));
+
+    int routes = store.indexOf("routes");
+    ByteBuffer bytes = store.bytesAt(routes);
+    Assert.assertTrue(bytes.isReadOnly());
+    byte[] encoded = new byte[bytes.remaining()];
+    bytes.get(encoded);
+    Assert.assertEquals(new String(encoded, "UTF-8"), "{\"a\": [1, 2]}");
+
+    CharSequence chars = store.charsAt(routes);
+    Assert.assertFalse(chars instanceof String);
+    Assert.assertEquals(chars.length(), 13);
+    Assert.assertEquals(chars.charAt(1), '"');
+    Assert.assertEquals(chars.subSequence(6, 12).toString(), "[1, 2]");
+    Assert.assertEquals(chars.toString(), "{\"a\": [1, 2]}");
+
+    int greeting = store.indexOf("greeting");
+    Assert.assertEquals(store.charsAt(greeting).toString(), "gr\u00fc\u00df dich");
+    Assert.assertEquals(store.bytesAt(greeting).remaining(), "gr\u00fc\u00df dich".getBytes("UTF-8").length);
+
+    BinaryPropertyStore cached = new BinaryPropertyStore(snapshot);
+    Assert.assertSame(cached.get("routes"), cached.get("routes"));
+    Assert.assertNotSame(cached.uncached().get("routes"), cached.uncached().get("routes"));
+  }
+
+  @Test
+  public void testMatches() throws IOException {
+    File source = new File("app.properties").getAbsoluteFile();
+    BinaryPropertyStore.Source file = new BinaryPropertyStore.Source(source, 16, 1000, 42);
+    BinaryPropertyStore.Source classpath = new BinaryPropertyStore.Source(null, 0, 0, 7);
+    List<String> lookUps = Collections.singletonList("prod");
+
+    BinaryPropertyStore store = new BinaryPropertyStore(BinaryPropertyWriter.encode(
+      Collections.singletonList(property("prod", "port", "8080")), lookUps, Arrays.asList(file, classpath)));
+    Assert.assertEquals(store.getSources().get(0).getFile(), source);
+    Assert.assertNull(store.getSources().get(1).getFile());
+
+    // touched but identical
+    Assert.assertTrue(store.matches(lookUps, Arrays.asList(new BinaryPropertyStore.Source(source, 16, 2000, 42),
+      classpath)));
+
+    Assert.assertFalse(store.matches(lookUps, Arrays.asList(new BinaryPropertyStore.Source(source, 16, 1000, 43),
+      classpath)));
+    Assert.assertFalse(store.matches(lookUps, Arrays.asList(file, new BinaryPropertyStore.Source(null, 0, 0, 8))));
+    Assert.assertFalse(store.matches(lookUps, Collections.singletonList(file)));
+    Assert.assertFalse(store.matches(Arrays.asList("prod", "dev"), Arrays.asList(file, classpath)));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testCorruptEntry() throws IOException {
+    ByteBuffer snapshot = BinaryPropertyWriter.encode(Collections.singletonList(property("prod", "port", "8080")),
+      Collections.singletonList("prod"), Collections.<BinaryPropertyStore.Source>emptyList());
+    // a value length reaching past the arena
+    snapshot.putInt(snapshot.getInt(36) + 12, Integer.MAX_VALUE);
+    new BinaryPropertyStore(snapshot);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testNotASnapshot() throws IOException {
+    new BinaryPropertyStore(ByteBuffer.wrap("(prod)port=8080 and some more bytes to fill up the header...".getBytes()));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testTruncated() throws IOException {
+    ByteBuffer snapshot = BinaryPropertyWriter.encode(Collections.singletonList(property("prod", "port", "8080")),
+      Collections.singletonList("prod"), Collections.<BinaryPropertyStore.Source>emptyList());
+    snapshot.limit(snapshot.limit() - 1);
+    new BinaryPropertyStore(snapshot.slice());
+  }
+
+  private static ClearProperty property(String lookUp, String key, String value) {
+    String lookUpKey = lookUp == null ? key : "(" + lookUp + ")" + key;
+    return new ClearProperty(new LookUpKey(lookUp, key, lookUpKey), value);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class PropertiesParserTest {
+
+  private static final String SYNTAX =
+    "# comment\n" +
+    "! bang comment \\\n" +
+    "plain=value\n" +
+    "   indented : colon separated  \n" +
+    "spaced   value after whitespace\n" +
+    "both =: odd\n" +
+    "empty=\n" +
+    "keyOnly\n" +
+    "\tTabbed\t=\ttab\n" +
+    "escaped\\ key\\=\\:=a\\=b\\:c\n" +
+    "specials=\\t\\n\\r\\f\\q\\\\\n" +
+    "unicode=\\u0041\\u00e9\\u20AC\n" +
+    "latin1=caf\u00e9\n" +
+    "continued=one, \\\n" +
+    "          two, \\\r\n" +
+    "   # not a comment\n" +
+    "crlf=windows\r\n" +
+    "cr=mac\r" +
+    "evenBackslashes=x\\\\\n" +
+    "next=line\n" +
+    "\n" +
+    "   \n" +
+    "duplicate=first\n" +
+    "duplicate=second\n" +
+    "trailing=end\\";
+
+  @Test
+  public void testMatchesProperties() throws IOException {
+    byte[] bytes = SYNTAX.getBytes("ISO-8859-1");
+    Properties expected = new Properties();
+    expected.load(new ByteArrayInputStream(bytes));
+
+    Map<String, String> actual = parse(ByteBuffer.wrap(bytes));
+    Assert.assertEquals(actual, new HashMap<Object, Object>(expected));
+
+    Assert.assertEquals(actual.get("indented"), "colon separated  ");
+    Assert.assertEquals(actual.get("both"), ": odd");
+    Assert.assertEquals(actual.get("escaped key=:"), "a=b:c");
+    Assert.assertEquals(actual.get("unicode"), "A\u00e9\u20ac");
+    Assert.assertEquals(actual.get("continued"), "one, two, # not a comment");
+    Assert.assertEquals(actual.get("evenBackslashes"), "x\\");
+    Assert.assertEquals(actual.get("duplicate"), "second");
+    Assert.assertEquals(actual.get("trailing"), "end");
+  }
+
+  @Test
+  public void testContinuationEdgeCases() throws IOException {
+    assertMatchesProperties("\f\\\n");
+    assertMatchesProperties("0:0tf\r\\\n");
+    assertMatchesProperties("=1ub\t0#nb1:a1 f =\n\\\n");
+    assertMatchesProperties("\\\n!x\n");
+    assertMatchesProperties("a=b\\\r\n  \\\n\n c\n");
+    assertMatchesProperties("a=b\\\r");
+    assertMatchesProperties("# comment at the end");
+  }
+
+  @Test
+  public void testFuzzMatchesProperties() throws IOException {
+    // Java 8 lets a comment ending in a backslash escape the next line, which the parser doesn't reproduce
+    boolean java8 = System.getProperty("java.specification.version", "").startsWith("1.");
+    char[] alphabet = {' ', '\t', '\f', '\r', '\n', '\\', '#', '!', '=', ':', 'a', '0', 'u', 'f', 't'};
+    Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      char[] chars = new char[random.nextInt(24)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String input = new String(chars);
+      if (!java8 || (input.indexOf('#') < 0 && input.indexOf('!') < 0)) {
+        assertMatchesProperties(input);
+      }
+    }
+  }
+
+  @Test
+  public void testFileOrder() {
+    final List<String> keys = new ArrayList<String>();
+    PropertiesParser.parse(ByteBuffer.wrap("b=1\na=2\nb=3".getBytes()), new PropertyHandler() {
+      @Override
+      public void property(String key, String value) {
+        keys.add(key + "=" + value);
+      }
+    });
+
+    Assert.assertEquals(keys.toString(), "[b=1, a=2, b=3]");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMalformedUnicode() {
+    parse(ByteBuffer.wrap("bad=\\u00g1".getBytes()));
+  }
+
+  @Test
+  public void testMappedFile() throws IOException {
+    File file = File.createTempFile("clear-parser", ".properties");
+    file.deleteOnExit();
+
+    StringBuilder build = new StringBuilder();
+    for (int i = 0; build.length() < PropertiesParser.MAP_THRESHOLD; i++) {
+      build.append("clear.mapped.key.").append(i).append(" = value \\\n  ").append(i).append('\n');
+    }
+    byte[] bytes = build.toString().getBytes("ISO-8859-1");
+
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+
+    ByteBuffer buffer = PropertiesParser.read(file);
+    Assert.assertFalse(buffer.hasArray());
+
+    Properties expected = new Properties();
+    expected.load(new ByteArrayInputStream(bytes));
+    Assert.assertEquals(parse(buffer), new HashMap<Object, Object>(expected));
+  }
+
+  private static void assertMatchesProperties(String input) throws IOException {
+    byte[] bytes = input.getBytes("ISO-8859-1");
+
+    Map<Object, Object> expected;
+    try {
+      Properties properties = new Properties();
+      properties.load(new ByteArrayInputStream(bytes));
+      expected = new HashMap<Object, Object>(properties);
+    } catch (IllegalArgumentException e) {
+      expected = null;
+    }
+
+    Map<String, String> actual;
+    try {
+      actual = parse(ByteBuffer.wrap(bytes));
+    } catch (IllegalArgumentException e) {
+      actual = null;
+    }
+
+    Assert.assertEquals(actual, expected, "parsing " + escape(input));
+  }
+
+  private static String escape(String input) {
+    return input.replace("\\", "\\\\").replace("\t", "\\t").replace("\f", "\\f").replace("\r", "\\r").replace("\n", "\\n");
+  }
+
+  private static Map<String, String> parse(ByteBuffer buffer) {
+    final Map<String, String> properties = new HashMap<String, String>();
+    PropertiesParser.parse(buffer, new PropertyHandler() {
+      @Override
+      public void property(String key, String value) {
+        properties.put(key, value);
+      }
+    });
+    return properties;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.lookup.LookUpRegistry;
+import org.theclearproject.clear.lookup.ParenthesesLookUpKeyResolver;
+
+/**
+ * Checks that loaded properties share their strings instead of each holding its own copies
+ *
+ * @author jhumphrey
+ */
+public class PropertyFootprintTest {
+
+  private static final int KEYS = 200;
+  private static final int LOOKUPS = 5;
+  private static final int VALUES = 10;
+
+  @Test
+  public void testStringsAreSharedAcrossBundles() {
+    // each bundle defines every key for its own lookUps, with its own string instances the way a parsed file
+    // hands them over
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>();
+    for (int lookUp = 0; lookUp < LOOKUPS; lookUp++) {
+      bundles.add(bundle(lookUp));
+    }
+
+    Set<ClearProperty> properties = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()).load(bundles);
+    Assert.assertEquals(properties.size(), KEYS * LOOKUPS);
+
+    Map<String, String> keys = new HashMap<String, String>();
+    Map<String, String> values = new HashMap<String, String>();
+    for (ClearProperty property : properties) {
+      String lookUp = property.getLookUpKey().getLookUp();
+      Assert.assertSame(lookUp, LookUpRegistry.nameOf(LookUpRegistry.idOf(new String(lookUp))));
+
+      String key = property.getKey();
+      if (keys.containsKey(key)) {
+        Assert.assertSame(key, keys.get(key));
+      } else {
+        keys.put(key, key);
+      }
+
+      String value = property.getValue();
+      if (values.containsKey(value)) {
+        Assert.assertSame(value, values.get(value));
+      } else {
+        values.put(value, value);
+      }
+    }
+
+    Assert.assertEquals(keys.size(), KEYS);
+    Assert.assertEquals(values.size(), VALUES);
+  }
+
+  private static ResourceBundle bundle(int lookUp) {
+    final Object[][] contents = new Object[KEYS][];
+    for (int i = 0; i < KEYS; i++) {
+      contents[i] = new Object[] {
+        new String("(footprint" + lookUp + ")clear.footprint.key." + i),
+        new String("value" + (i % VALUES))
+      };
+    }
+
+    return new ListResourceBundle() {
+      @Override
+      protected Object[][] getContents() {
+        return contents;
+      }
+    };
+  }
+}
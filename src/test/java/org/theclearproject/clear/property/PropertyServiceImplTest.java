@@ -16,13 +16,21 @@
 
 package org.theclearproject.clear.property;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.PropertyResourceBundle;
+import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.easymock.EasyMock;
 import org.testng.Assert;
@@ -344,4 +352,144 @@ public class PropertyServiceImplTest {
     }
   }
 
+  @Test
+  public void testFilterPriorityWithManyLookUps() {
+    // duplicated lookUps, keys defined under several lookUps and keys defined twice under the same lookUp
+    List<String> lookUps = new ArrayList<String>();
+    for (int i = 0; i < 20; i++) {
+      lookUps.add("lookUp" + (i % 15));
+    }
+
+    Random random = new Random(7);
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    for (int i = 0; i < 2000; i++) {
+      String lookUp = random.nextInt(10) == 0 ? null : "lookUp" + random.nextInt(25);
+      String key = "key" + random.nextInt(300);
+      String lookUpKey = lookUp == null ? key : "(" + lookUp + ")" + key;
+      properties.add(new ClearProperty(new LookUpKey(lookUp, key, lookUpKey), String.valueOf(i)));
+    }
+
+    // the priority rules spelled out: lookUps in order, then properties in order, first property per key wins
+    Map<String, ClearProperty> expected = new HashMap<String, ClearProperty>();
+    for (String lookUp : lookUps) {
+      for (ClearProperty property : properties) {
+        if (lookUp.equals(property.getLookUpKey().getLookUp()) && !expected.containsKey(property.getKey())) {
+          expected.put(property.getKey(), property);
+        }
+      }
+    }
+
+    Collection<ClearProperty> filteredProperties = new PropertyServiceImpl(null).filter(properties, lookUps);
+
+    Assert.assertEquals(filteredProperties.size(), expected.size());
+    for (ClearProperty filteredProperty : filteredProperties) {
+      Assert.assertSame(filteredProperty, expected.get(filteredProperty.getKey()));
+    }
+  }
+
+  @Test
+  public void testParallelLoad() throws IOException {
+    // every bundle redefines the same lookUp keys, so the merge order decides every value
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>();
+    for (int i = 0; i < 16; i++) {
+      StringBuilder content = new StringBuilder();
+      for (int j = 0; j < 500; j++) {
+        content.append("(lookUp").append(j % 3).append(")key").append(j % 200 + i * 10).append("=").append(i).append("\n");
+      }
+      bundles.add(new PropertyResourceBundle(new ByteArrayInputStream(content.toString().getBytes("ISO-8859-1"))));
+    }
+
+    Set<ClearProperty> sequential = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()).load(bundles);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Set<ClearProperty> parallel = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver(), pool).load(bundles);
+
+      Assert.assertEquals(parallel.size(), sequential.size());
+      Map<ClearProperty, String> sequentialValues = new HashMap<ClearProperty, String>();
+      for (ClearProperty property : sequential) {
+        sequentialValues.put(property, property.getValue());
+      }
+      for (ClearProperty property : parallel) {
+        Assert.assertEquals(property.getValue(), sequentialValues.get(property));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testMutableBundleIsTranslatedOnEveryLoad() {
+    MutableBundle bundle = new MutableBundle();
+    PropertyServiceImpl service = new PropertyServiceImpl(new ParenthesesLookUpKeyResolver());
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>();
+    bundles.add(bundle);
+
+    bundle.values.put("(default)timeout", "10");
+    Assert.assertEquals(service.load(bundles).iterator().next().getValue(), "10");
+
+    // the same instance, changed in place
+    bundle.values.put("(default)timeout", "20");
+    Assert.assertEquals(service.load(bundles).iterator().next().getValue(), "20");
+  }
+
+  @Test
+  public void testRepeatedKeyInSourceTakesLastValue() {
+    List<ResourceBundle> bundles = new ArrayList<ResourceBundle>();
+    bundles.add(new SourceBundle("(default)timeout", "10", "(default)timeout", "20"));
+    bundles.add(new SourceBundle("(default)timeout", "30", "(default)retries", "3"));
+
+    Map<String, String> values = new HashMap<String, String>();
+    for (ClearProperty property : new PropertyServiceImpl(new ParenthesesLookUpKeyResolver()).load(bundles)) {
+      values.put(property.getLookUpKey().getKey(), property.getValue());
+    }
+
+    // the last value within a source, but the first source still wins
+    Assert.assertEquals(values.get("timeout"), "20");
+    Assert.assertEquals(values.get("retries"), "3");
+  }
+
+  private static class SourceBundle extends ResourceBundle implements PropertySource {
+    private final String[] pairs;
+
+    SourceBundle(String... pairs) {
+      this.pairs = pairs;
+    }
+
+    @Override
+    public void readProperties(PropertyHandler handler) {
+      for (int i = 0; i < pairs.length; i += 2) {
+        handler.property(pairs[i], pairs[i + 1]);
+      }
+    }
+
+    @Override
+    public long getChecksum() {
+      return 0;
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static class MutableBundle extends ResourceBundle {
+    private final Map<String, String> values = new HashMap<String, String>();
+
+    @Override
+    protected Object handleGetObject(String key) {
+      return values.get(key);
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+      return Collections.enumeration(values.keySet());
+    }
+  }
 }
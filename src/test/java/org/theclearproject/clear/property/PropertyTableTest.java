@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.theclearproject.clear.lookup.LookUpKey;
+
+/**
+ * @author jhumphrey
+ */
+public class PropertyTableTest {
+
+  @Test
+  public void testGet() {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    for (int i = 0; i < 1000; i++) {
+      properties.add(property("key." + i, "value." + i));
+    }
+
+    PropertyTable table = new PropertyTable(properties);
+
+    Assert.assertEquals(table.size(), 1000);
+    Assert.assertTrue(table.capacity() >= 2000);
+    for (int i = 0; i < 1000; i++) {
+      // use a copy of the key so the lookup can't rely on identity
+      String key = new String("key." + i);
+      int slot = table.indexOf(key);
+      Assert.assertTrue(slot >= 0);
+      Assert.assertEquals(table.keyAt(slot), key);
+      Assert.assertEquals(table.valueAt(slot).getValue(), "value." + i);
+      Assert.assertEquals(table.get(key).getValue(), "value." + i);
+    }
+  }
+
+  @Test
+  public void testMisses() {
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    properties.add(property("foo", "bar"));
+
+    PropertyTable table = new PropertyTable(properties);
+
+    Assert.assertNull(table.get("baz"));
+    Assert.assertNull(table.get(null));
+    Assert.assertEquals(table.indexOf("baz"), -1);
+
+    PropertyTable empty = new PropertyTable(new ArrayList<ClearProperty>());
+    Assert.assertEquals(empty.size(), 0);
+    Assert.assertNull(empty.get("foo"));
+  }
+
+  @Test
+  public void testCollisionsAndDuplicates() {
+    // "Aa" and "BB" share a hash code
+    List<ClearProperty> properties = new ArrayList<ClearProperty>();
+    properties.add(property("Aa", "1"));
+    properties.add(property("BB", "2"));
+    properties.add(property("Aa", "3"));
+
+    PropertyTable table = new PropertyTable(properties);
+
+    Assert.assertEquals(table.size(), 2);
+    Assert.assertEquals(table.get("Aa").getValue(), "3");
+    Assert.assertEquals(table.get("BB").getValue(), "2");
+    Assert.assertNull(table.get("AaBB"));
+  }
+
+  @Test
+  public void testKeyFilter() {
+    KeyFilter filter = new KeyFilter(10000);
+    for (int i = 0; i < 10000; i++) {
+      filter.add(("key." + i).hashCode());
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      Assert.assertTrue(filter.mightContain(("key." + i).hashCode()));
+      if (filter.mightContain(("missing." + i).hashCode())) {
+        falsePositives++;
+      }
+    }
+
+    Assert.assertTrue(falsePositives < 200, "Too many false positives: " + falsePositives);
+  }
+
+  private ClearProperty property(String key, String value) {
+    return new ClearProperty(new LookUpKey(null, key, key), value);
+  }
+}
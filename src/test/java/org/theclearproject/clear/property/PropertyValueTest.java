@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012 www.theclearproject.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.theclearproject.clear.property;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author jhumphrey
+ */
+public class PropertyValueTest {
+
+  @Test
+  public void testInteger() {
+    PropertyValue value = new PropertyValue("1234");
+
+    Assert.assertEquals(value.getValue(), "1234");
+    Assert.assertTrue(value.isInt());
+    Assert.assertTrue(value.isLong());
+    Assert.assertTrue(value.isShort());
+    Assert.assertTrue(value.isDouble());
+    Assert.assertTrue(value.isFloat());
+    Assert.assertEquals(value.getInt(), 1234);
+    Assert.assertEquals(value.getLong(), 1234L);
+    Assert.assertEquals(value.getShort(), (short) 1234);
+    Assert.assertEquals(value.getDouble(), 1234D);
+    Assert.assertEquals(value.getFloat(), 1234F);
+    Assert.assertFalse(value.getBoolean());
+  }
+
+  @Test
+  public void testRanges() {
+    PropertyValue value = new PropertyValue("1234123512342323341");
+    Assert.assertTrue(value.isLong());
+    Assert.assertFalse(value.isInt());
+    Assert.assertFalse(value.isShort());
+    Assert.assertEquals(value.getLong(), 1234123512342323341L);
+    Assert.assertEquals(value.getDouble(), Double.parseDouble("1234123512342323341"));
+
+    value = new PropertyValue("-40000");
+    Assert.assertTrue(value.isInt());
+    Assert.assertFalse(value.isShort());
+    Assert.assertEquals(value.getInt(), -40000);
+  }
+
+  @Test
+  public void testDecimal() {
+    PropertyValue value = new PropertyValue("2.34");
+
+    Assert.assertFalse(value.isInt());
+    Assert.assertFalse(value.isLong());
+    Assert.assertFalse(value.isShort());
+    Assert.assertTrue(value.isDouble());
+    Assert.assertTrue(value.isFloat());
+    Assert.assertEquals(value.getDouble(), 2.34);
+    Assert.assertEquals(value.getFloat(), 2.34F);
+
+    // same grammar as Double.parseDouble
+    Assert.assertTrue(new PropertyValue(" 1.5 ").isDouble());
+    Assert.assertTrue(new PropertyValue("NaN").isDouble());
+    Assert.assertTrue(new PropertyValue("-Infinity").isDouble());
+    Assert.assertTrue(new PropertyValue("1e3").isDouble());
+  }
+
+  @Test
+  public void testText() {
+    PropertyValue value = new PropertyValue("bark");
+
+    Assert.assertFalse(value.isInt());
+    Assert.assertFalse(value.isLong());
+    Assert.assertFalse(value.isShort());
+    Assert.assertFalse(value.isDouble());
+    Assert.assertFalse(value.isFloat());
+    Assert.assertFalse(value.getBoolean());
+
+    Assert.assertTrue(new PropertyValue("TRUE").getBoolean());
+    Assert.assertFalse(new PropertyValue("").isDouble());
+    Assert.assertFalse(new PropertyValue("12abc").isInt());
+  }
+}